@@ -56,7 +56,6 @@ client_cmd="${JAVA} \
 	-XX:+HeapDumpOnOutOfMemoryError -XX:HeapDumpPath=${agentHome}/logs/oom-${START_DATE}.hprof \
 	-Dagent.conf.path=${agentHome}/conf/agent.properties \
 	-Dauthorization.conf.path=${agentHome}/conf/authorization.properties \
-	-Dagent.quartz.conf.path=${agentHome}/conf/quartz.properties \
 	-Dagent.log4j.conf.path=${agentHome}/conf/log4j.properties \
 	-Dagent.jmx.metrics.common.path=${agentHome}/conf/jmx/common.properties \
 	-Dagent.plugin.conf.dir=${agentHome}/conf/plugin \
@@ -4,7 +4,10 @@
  */
 package com.falcon.suitagent;
 
+import com.falcon.suitagent.common.SchedulerFactory;
 import com.falcon.suitagent.config.AgentConfiguration;
+import com.falcon.suitagent.falcon.AgentMetrics;
+import com.falcon.suitagent.falcon.ReportMetrics;
 import com.falcon.suitagent.jmx.JMXConnection;
 import com.falcon.suitagent.plugins.util.PluginExecute;
 import com.falcon.suitagent.plugins.util.PluginLibraryHelper;
@@ -15,10 +18,6 @@ import com.falcon.suitagent.watcher.PluginPropertiesWatcher;
 import com.falcon.suitagent.web.HttpServer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.log4j.PropertyConfigurator;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.SchedulerFactory;
-import org.quartz.impl.DirectSchedulerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,7 +29,6 @@ import java.nio.CharBuffer;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
-import java.util.Collection;
 
 import static com.falcon.suitagent.plugins.metrics.MetricsCommon.getEndpointByTrans;
 
@@ -90,10 +88,7 @@ public class Agent extends Thread{
      * @throws IOException
      */
     private void agentServerStart(int port) throws IOException {
-        String agentPushUrl = AgentConfiguration.INSTANCE.getAgentPushUrl();
-        if(agentPushUrl.contains("127.0.0.1") ||
-                agentPushUrl.contains("localhost") ||
-                agentPushUrl.contains("0.0.0.0")){
+        if(AgentConfiguration.INSTANCE.isLocalFalconAgent()){
             log.info("开始启动 Falcon Agent服务");
             String falconAgentConfFileName = "agent.cfg.json";
             String falconAgentConfFile = AgentConfiguration.INSTANCE.getFalconConfDir() + File.separator + falconAgentConfFileName;
@@ -245,37 +240,17 @@ public class Agent extends Thread{
             log.error("serverSocketChannel.close()异常",e);
         }
         log.info("------------进行调度器关闭处理-------------------");
-        SchedulerFactory sf = DirectSchedulerFactory.getInstance();
-        //获取所有的Scheduler
-        Collection<Scheduler> schedulers;
-        try {
-            schedulers = sf.getAllSchedulers();
-            for (Scheduler scheduler : schedulers) {
-                try {
-                    log.info("关闭调度器scheduler：" + scheduler.getSchedulerName());
-                    scheduler.shutdown(true);
-                } catch (SchedulerException e) {
-                    log.warn("关闭调度器出现异常",e);
-                    try {
-                        log.warn("调度器scheduler：" + scheduler.getSchedulerName() + "\n状态：started:" + scheduler.isStarted() +
-                                " shutdown:" + scheduler.isShutdown());
-                    } catch (SchedulerException ignored) {
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.warn("获取Schedulers发生异常：" + e);
-            log.error("获取Schedulers发生异常 " + e.getMessage());
-        }
+        SchedulerFactory.shutdown(10000);
         log.info("调度器关闭成功");
 
         log.info("关闭JMX连接");
         JMXConnection.closeAll();
 
-        String agentPushUrl = AgentConfiguration.INSTANCE.getAgentPushUrl();
-        if(agentPushUrl.contains("127.0.0.1") ||
-                agentPushUrl.contains("localhost") ||
-                agentPushUrl.contains("0.0.0.0")){
+        log.info("发送push队列中剩余的报告");
+        AgentMetrics.stop();
+        ReportMetrics.shutdown();
+
+        if(AgentConfiguration.INSTANCE.isLocalFalconAgent()){
             try {
                 String falconAgentDir = AgentConfiguration.INSTANCE.getFalconDir() + File.separator + "agent";
                 String falconTarget = falconAgentDir + File.separator + "control";
@@ -317,6 +292,8 @@ public class Agent extends Thread{
             new PluginLibraryHelper().register();
             //运行插件
             PluginExecute.start();
+            //上报Agent自身的指标
+            AgentMetrics.start();
             //启动配置文件监听
             Thread pluginWatcher = new PluginPropertiesWatcher(AgentConfiguration.INSTANCE.getPluginConfPath());
             pluginWatcher.setName("pluginDirWatcher");
@@ -6,9 +6,7 @@ package com.falcon.suitagent.common;
 
 import com.falcon.suitagent.plugins.util.PluginExecute;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import org.quartz.JobDataMap;
 
 /*
  * 修订记录:
@@ -20,9 +18,9 @@ import org.quartz.JobExecutionException;
  * @author guqiu@yiji.com
  */
 @Slf4j
-public class AgentFlushJob implements Job{
+public class AgentFlushJob implements AgentJob {
     @Override
-    public void execute(JobExecutionContext context) throws JobExecutionException {
+    public void execute(JobDataMap jobDataMap) {
         try {
             log.info("开始自动扫描插件服务");
             PluginExecute.run();
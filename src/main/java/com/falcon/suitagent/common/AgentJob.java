@@ -0,0 +1,29 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.common;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:36 创建
+ */
+
+import org.quartz.JobDataMap;
+
+/**
+ * 由 {@link TimingWheelScheduler} 调度的任务
+ * 任务实例在调度期间复用,实现类不应保存执行状态。
+ * 同一个 {@link ScheduledJob} 同一时刻最多只有一次执行,上一次执行未结束时到期的调度按 agent.scheduler.overlap
+ * ({@link OverlapPolicy})跳过,或合并为上一次执行结束后立即进行的一次执行
+ * @author agent@local
+ */
+public interface AgentJob {
+
+    /**
+     * 执行任务
+     * @param jobDataMap
+     * 任务的数据
+     * @throws Exception
+     */
+    void execute(JobDataMap jobDataMap) throws Exception;
+}
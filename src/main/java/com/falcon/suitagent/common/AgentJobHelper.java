@@ -9,10 +9,12 @@ import com.falcon.suitagent.jmx.JMXUtil;
 import com.falcon.suitagent.plugins.DetectPlugin;
 import com.falcon.suitagent.plugins.JDBCPlugin;
 import com.falcon.suitagent.plugins.JMXPlugin;
+import com.falcon.suitagent.plugins.Plugin;
 import com.falcon.suitagent.plugins.SNMPV3Plugin;
 import com.falcon.suitagent.plugins.job.JMXPluginJob;
+import com.falcon.suitagent.plugins.metrics.SampleRollup;
 import com.falcon.suitagent.plugins.util.PluginActivateType;
-import com.falcon.suitagent.util.CronUtil;
+import com.falcon.suitagent.plugins.util.PluginLibraryHelper;
 import com.falcon.suitagent.util.SchedulerUtil;
 import com.falcon.suitagent.util.StringUtils;
 import com.falcon.suitagent.vo.jdbc.JDBCConnectionInfo;
@@ -20,15 +22,13 @@ import com.falcon.suitagent.vo.sceduler.ScheduleJobResult;
 import com.falcon.suitagent.vo.sceduler.ScheduleJobStatus;
 import com.falcon.suitagent.vo.snmp.SNMPV3UserInfo;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.*;
+import org.quartz.JobDataMap;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentSkipListSet;
 
-import static org.quartz.TriggerBuilder.newTrigger;
-
 /*
  * 修订记录:
  * guqiu@yiji.com 2016-06-22 17:48 创建
@@ -66,17 +66,14 @@ public class AgentJobHelper {
 
     /**
      * Agent监控服务自动发现定时刷新功能
-     * @throws SchedulerException
      */
-    public static void agentFlush() throws SchedulerException {
+    public static void agentFlush() {
         String agentFlush = "AgentFlush";
         if(AgentConfiguration.INSTANCE.getAgentFlushTime() != 0 &&
                 !isHasWorked(agentFlush)){
             //开启服务自动发现
-            JobDetail job = getJobDetail(AgentFlushJob.class,agentFlush,"Agent监控服务自动发现定时刷新功能Job",new JobDataMap());
-
-            Trigger trigger = getTrigger(AgentConfiguration.INSTANCE.getAgentFlushTime(),agentFlush,"Agent监控服务自动发现定时刷新push调度任务");
-            ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job,trigger);
+            ScheduledJob job = newJob(AgentFlushJob.class,agentFlush,"Agent监控服务自动发现定时刷新push调度任务",new JobDataMap(),AgentConfiguration.INSTANCE.getAgentFlushTime());
+            ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job);
             scheduleResults.add(scheduleJobResult);
             workResult(scheduleJobResult,agentFlush);
         }else{
@@ -93,7 +90,6 @@ public class AgentJobHelper {
      * @param jobServerName
      * @param jmxServerName
      * @param jobDataMap
-     * @throws SchedulerException
      */
     public synchronized static void pluginWorkForJMX(String pluginName, JMXPlugin jmxPlugin, String desc, String jobServerName, String jmxServerName, JobDataMap jobDataMap) throws Exception {
         //只有指定job未启动过的情况下才进行work开启
@@ -103,15 +99,15 @@ public class AgentJobHelper {
                         && !JMXUtil.getHostJavaCommandInfosFromContainer(jmxServerName).isEmpty())){
                     //开启本地Java服务监控
                     log.info("发现服务 {} , 启动插件 {} ",jobServerName,pluginName);
-                    doJob(JMXPluginJob.class,desc,jmxPlugin.step(),jobDataMap,jobServerName);
+                    doJob(JMXPluginJob.class,desc,jmxPlugin,jobDataMap,jobServerName);
                 }
                 if (jmxServerName == null && jobDataMap.get("commandInfoList") != null){
                     //开启jmx commandInfos Java服务监控
                     log.info("发现服务 {} , 启动插件 {} ",jmxPlugin.serverName() + "-JMXCommandInfos",pluginName);
-                    doJob(JMXPluginJob.class,desc,jmxPlugin.step(),jobDataMap,jobServerName);
+                    doJob(JMXPluginJob.class,desc,jmxPlugin,jobDataMap,jobServerName);
                 }
             }else if(jmxPlugin.activateType() == PluginActivateType.FORCE){
-                doJob(JMXPluginJob.class,desc,jmxPlugin.step(),jobDataMap,jobServerName);
+                doJob(JMXPluginJob.class,desc,jmxPlugin,jobDataMap,jobServerName);
             }
         }
     }
@@ -124,11 +120,9 @@ public class AgentJobHelper {
      * @param jobServerName
      * @param desc
      * @param jobDataMap
-     * @throws SchedulerException
      */
-    public synchronized static void pluginWorkForJDBC(JDBCPlugin jdbcPlugin ,String pluginName, Class<? extends Job> jobClazz, String jobServerName,String desc, JobDataMap jobDataMap) throws SchedulerException {
+    public synchronized static void pluginWorkForJDBC(JDBCPlugin jdbcPlugin ,String pluginName, Class<? extends AgentJob> jobClazz, String jobServerName,String desc, JobDataMap jobDataMap) {
         PluginActivateType pluginActivateType = jdbcPlugin.activateType();
-        int step = jdbcPlugin.step();
         //只有指定job未启动过的情况下才进行work开启
         if(!isHasWorked(jobServerName)){
             if(pluginActivateType == PluginActivateType.AUTO){
@@ -137,12 +131,12 @@ public class AgentJobHelper {
                     if(connectionInfos != null && !connectionInfos.isEmpty()){
                         //无异常且连接正常,代表连接获取成功,开启服务监控
                         log.info("发现服务 {} , 启动插件 {} ",jobServerName,pluginName);
-                        doJob(jobClazz,desc,step,jobDataMap,jobServerName);
+                        doJob(jobClazz,desc,jdbcPlugin,jobDataMap,jobServerName);
                     }
                 } catch (Exception ignored) {
                 }
             }else if(!StringUtils.isEmpty(jdbcPlugin.jdbcConfig()) && pluginActivateType == PluginActivateType.FORCE){
-                doJob(jobClazz,desc,step,jobDataMap,jobServerName);
+                doJob(jobClazz,desc,jdbcPlugin,jobDataMap,jobServerName);
             }
         }
     }
@@ -153,9 +147,8 @@ public class AgentJobHelper {
      * @param pluginName
      * @param jobClazz
      * @param jobDataMap
-     * @throws SchedulerException
      */
-    public synchronized static void pluginWorkForDetect(DetectPlugin plugin , String pluginName, Class<? extends Job> jobClazz, JobDataMap jobDataMap) throws SchedulerException {
+    public synchronized static void pluginWorkForDetect(DetectPlugin plugin , String pluginName, Class<? extends AgentJob> jobClazz, JobDataMap jobDataMap) {
         String serverName = plugin.serverName();
         //只有指定job未启动过的情况下才进行work开启
         if(!isHasWorked(serverName)){
@@ -174,7 +167,7 @@ public class AgentJobHelper {
             if(start){
                 //开启监控服务
                 log.info("发现服务 {} , 启动插件 {} ",serverName,pluginName);
-                doJob(jobClazz,pluginName,plugin.step(),jobDataMap,serverName);
+                doJob(jobClazz,pluginName,plugin,jobDataMap,serverName);
             }
         }
     }
@@ -187,11 +180,9 @@ public class AgentJobHelper {
      * @param serverName
      * @param desc
      * @param jobDataMap
-     * @throws SchedulerException
      */
-    public synchronized static void pluginWorkForSNMPV3(SNMPV3Plugin snmpv3Plugin , String pluginName, Class<? extends Job> jobClazz, String serverName, String desc, JobDataMap jobDataMap) throws SchedulerException {
+    public synchronized static void pluginWorkForSNMPV3(SNMPV3Plugin snmpv3Plugin , String pluginName, Class<? extends AgentJob> jobClazz, String serverName, String desc, JobDataMap jobDataMap) {
         PluginActivateType pluginActivateType = snmpv3Plugin.activateType();
-        int step = snmpv3Plugin.step();
         //只有指定job未启动过的情况下才进行work开启
         if(!isHasWorked(serverName)){
             if(pluginActivateType == PluginActivateType.AUTO){
@@ -200,20 +191,28 @@ public class AgentJobHelper {
                     if(snmpv3UserInfoList != null && !snmpv3UserInfoList.isEmpty()){
                         //无异常且连接正常,代表连接获取成功,开启服务监控
                         log.info("发现服务 {} , 启动插件 {} ",serverName,pluginName);
-                        doJob(jobClazz,desc,step,jobDataMap,serverName);
+                        doJob(jobClazz,desc,snmpv3Plugin,jobDataMap,serverName);
                     }
                 } catch (Exception ignored) {
                 }
             }else if(!snmpv3Plugin.userInfo().isEmpty() && pluginActivateType == PluginActivateType.FORCE){
-                doJob(jobClazz,desc,step,jobDataMap,serverName);
+                doJob(jobClazz,desc,snmpv3Plugin,jobDataMap,serverName);
             }
         }
     }
 
-    private static void doJob(Class<? extends Job> jobClazz,String desc,int step,JobDataMap jobDataMap,String jobServerName) throws SchedulerException {
-        JobDetail job = getJobDetail(jobClazz,desc,desc + "的监控数据push调度JOB",jobDataMap);
-        Trigger trigger = getTrigger(step,desc,desc + "的监控数据push调度任务");
-        ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job,trigger);
+    private static void doJob(Class<? extends AgentJob> jobClazz,String desc,Plugin plugin,JobDataMap jobDataMap,String jobServerName) {
+        int step = plugin.step();
+        int sampleInterval = PluginLibraryHelper.getSampleInterval(plugin);
+        if(sampleInterval > 0){
+            //以采样间隔调度,每个step汇总上报一次
+            jobDataMap.put(SampleRollup.JOB_DATA_KEY,new SampleRollup(step,sampleInterval,AgentConfiguration.INSTANCE.getSampleRollups()));
+            step = sampleInterval;
+        }else{
+            jobDataMap.remove(SampleRollup.JOB_DATA_KEY);
+        }
+        ScheduledJob job = newJob(jobClazz,desc,desc + "的监控数据push调度任务",jobDataMap,step);
+        ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job);
         scheduleResults.add(scheduleJobResult);
         workResult(scheduleJobResult,jobServerName);
     }
@@ -224,51 +223,38 @@ public class AgentJobHelper {
      */
     public static void workResult(ScheduleJobResult scheduleJobResult,String jobServerName){
         if(scheduleJobResult.getScheduleJobStatus() == ScheduleJobStatus.SUCCESS){
-            log.info("{} 启动成功",scheduleJobResult.getTrigger().getDescription());
+            log.info("{} 启动成功",scheduleJobResult.getScheduledJob().getDescription());
             //记录work
             addWorkJob(jobServerName);
         }else if(scheduleJobResult.getScheduleJobStatus() == ScheduleJobStatus.FAILED){
-            log.error("{} 启动失败",scheduleJobResult.getTrigger().getDescription());
+            log.error("{} 启动失败",scheduleJobResult.getJobName());
         }
     }
 
     /**
-     * 获取计划任务JOB
-     * @param job
+     * 获取计划任务
+     * @param jobClazz
      * @param id
+     * 任务名称
      * @param description
-     * @return
-     */
-    public static JobDetail getJobDetail(Class <? extends Job> job, String id, String description,JobDataMap jobDataMap){
-        return JobBuilder.newJob(job)
-                .withIdentity(id + "-scheduler-job", "job-metricsScheduler")
-                .withDescription(description)
-                .setJobData(jobDataMap)
-                .build();
-    }
-
-    /**
-     * 获取调度器
+     * @param jobDataMap
      * @param step
-     * @param id
-     * @param description
+     * 执行间隔(秒)
      * @return
      */
-    public static Trigger getTrigger(int step, String id, String description){
-        String cron = CronUtil.getCronBySecondScheduler(step);
-        Trigger trigger = null;
-        if(cron != null){
-            log.info("启动{ " + description + " }调度:" + cron);
-            trigger = newTrigger()
-                    .withIdentity(id + "-agent-scheduler-trigger", "trigger-metricsScheduler")
-                    .withSchedule(CronScheduleBuilder.cronSchedule(cron))
-                    .startNow()
-                    .withDescription(description)
-                    .build();
-        }else{
+    public static ScheduledJob newJob(Class<? extends AgentJob> jobClazz, String id, String description, JobDataMap jobDataMap, int step){
+        if(step <= 0 || step >= 24 * 60 * 60){
             log.error("agent 启动失败. 调度时间配置失败");
             System.exit(0);
         }
-        return trigger;
+        AgentJob job;
+        try {
+            job = jobClazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalArgumentException("任务实例化失败:" + jobClazz.getName(),e);
+        }
+        log.info("启动{ {} }调度:每{}秒",description,step);
+        //调用方会复用并修改jobDataMap,任务持有其副本
+        return new ScheduledJob(id,description,job,new JobDataMap(jobDataMap),step);
     }
 }
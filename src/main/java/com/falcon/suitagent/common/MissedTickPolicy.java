@@ -0,0 +1,52 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.common;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:36 创建
+ */
+
+/**
+ * 任务错过调度时间(调度线程停顿、系统挂起或工作线程繁忙)达到一个周期以上时的处理策略
+ * @author agent@local
+ */
+public enum MissedTickPolicy {
+    /**
+     * 立即补执行一次,之后回到原有的调度相位(与原Quartz cron触发器的默认处理一致)
+     */
+    FIRE_ONCE("fire-once"),
+    /**
+     * 放弃错过的执行,在下一个调度时间点执行
+     */
+    SKIP("skip");
+
+    /**
+     * 配置文件中的配置值
+     */
+    private String conf;
+
+    MissedTickPolicy(String conf) {
+        this.conf = conf;
+    }
+
+    public String getConf() {
+        return conf;
+    }
+
+    /**
+     * 根据配置值获取策略
+     * @param conf
+     * @return
+     * null : 无匹配的策略
+     */
+    public static MissedTickPolicy fromConf(String conf){
+        for (MissedTickPolicy policy : values()) {
+            if(policy.conf.equalsIgnoreCase(conf)){
+                return policy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.common;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:36 创建
+ */
+
+/**
+ * 任务到达调度时间时,上一次执行仍未结束的处理策略
+ * 同一任务任何时刻最多只有一次执行,避免目标服务响应变慢时执行堆积、进一步加重目标的负载
+ * @author agent@local
+ */
+public enum OverlapPolicy {
+    /**
+     * 跳过本次执行
+     */
+    SKIP("skip"),
+    /**
+     * 合并为一次执行: 上一次执行结束后立即再执行一次,期间多次到期只计一次
+     */
+    COALESCE("coalesce");
+
+    /**
+     * 配置文件中的配置值
+     */
+    private String conf;
+
+    OverlapPolicy(String conf) {
+        this.conf = conf;
+    }
+
+    public String getConf() {
+        return conf;
+    }
+
+    /**
+     * 根据配置值获取策略
+     * @param conf
+     * @return
+     * null : 无匹配的策略
+     */
+    public static OverlapPolicy fromConf(String conf){
+        for (OverlapPolicy policy : values()) {
+            if(policy.conf.equalsIgnoreCase(conf)){
+                return policy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.common;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:36 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobDataMap;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TimingWheelScheduler} 中的一个周期任务及其运行统计
+ * @author agent@local
+ */
+@Slf4j
+public class ScheduledJob {
+
+    /**
+     * 自适应调度时,JobDataMap中当前step倍数的键,由任务据此修正报告的step
+     */
+    public static final String STEP_MULTIPLIER_KEY = "stepMultiplier";
+
+    private final String name;
+    private final String description;
+    private final AgentJob job;
+    private final JobDataMap jobDataMap;
+    private final long intervalMillis;
+
+    /**
+     * 以下字段只由调度线程访问
+     */
+    long deadline;
+    long remainingRounds;
+
+    private volatile boolean cancelled = false;
+    private volatile long startTime;
+    private volatile long phaseMillis;
+
+    /**
+     * 自适应调度: 执行耗时超过间隔的该百分比时拉长间隔
+     */
+    private int adaptiveRatio;
+    /**
+     * 自适应调度: 间隔的最大倍数,为1时不启用
+     */
+    private int adaptiveMaxMultiplier = 1;
+    /**
+     * 当前的间隔倍数
+     */
+    private volatile int stepMultiplier = 1;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    /**
+     * 是否有执行未结束(单次执行)
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+    /**
+     * 执行期间到期、等待合并执行的标记
+     */
+    private final AtomicBoolean rerun = new AtomicBoolean();
+    private volatile long lastStartTime;
+    private volatile long lastDuration;
+    private final LatencyHistogram duration = new LatencyHistogram();
+    private final LatencyHistogram lateness = new LatencyHistogram();
+
+    /**
+     * @param name
+     * 任务名称,同名的任务会被替换
+     * @param description
+     * 任务描述
+     * @param job
+     * @param jobDataMap
+     * @param intervalSeconds
+     * 执行间隔(秒)
+     */
+    public ScheduledJob(String name, String description, AgentJob job, JobDataMap jobDataMap, int intervalSeconds) {
+        this.name = name;
+        this.description = description;
+        this.job = job;
+        this.jobDataMap = jobDataMap;
+        this.intervalMillis = intervalSeconds * 1000L;
+    }
+
+    /**
+     * 尝试开始一次执行
+     * @param overlapPolicy
+     * @return
+     * false : 上一次执行未结束,本次已按策略跳过或合并
+     */
+    boolean tryStart(OverlapPolicy overlapPolicy){
+        if(running.compareAndSet(false,true)){
+            return true;
+        }
+        if(overlapPolicy == OverlapPolicy.COALESCE && !rerun.getAndSet(true)){
+            coalesced.incrementAndGet();
+        }else{
+            skipped.incrementAndGet();
+        }
+        return false;
+    }
+
+    /**
+     * 本次执行未能提交到工作线程
+     */
+    void onRejected(){
+        rejected.incrementAndGet();
+        running.set(false);
+    }
+
+    /**
+     * 在工作线程中执行任务,须先通过 {@link #tryStart(OverlapPolicy)}
+     * @param scheduledTime
+     * 本次的调度时间
+     */
+    void run(long scheduledTime){
+        for (;;){
+            runOnce(scheduledTime);
+            //执行期间又到期的调度合并为一次,立即执行
+            if(rerun.getAndSet(false)){
+                scheduledTime = System.currentTimeMillis();
+                continue;
+            }
+            running.set(false);
+            //结束前的瞬间被标记了合并执行,且调度线程尚未开始新的执行
+            if(rerun.getAndSet(false) && running.compareAndSet(false,true)){
+                scheduledTime = System.currentTimeMillis();
+                continue;
+            }
+            return;
+        }
+    }
+
+    private void runOnce(long scheduledTime){
+        if(adaptiveMaxMultiplier > 1){
+            jobDataMap.put(STEP_MULTIPLIER_KEY,stepMultiplier);
+        }
+        long start = System.currentTimeMillis();
+        lastStartTime = start;
+        lateness.record(Math.max(0,start - scheduledTime));
+        active.incrementAndGet();
+        try {
+            job.execute(jobDataMap);
+        } catch (Throwable e) {
+            failures.incrementAndGet();
+            log.error("任务 {} 执行异常",name,e);
+        } finally {
+            active.decrementAndGet();
+            lastDuration = System.currentTimeMillis() - start;
+            duration.record(lastDuration);
+            runs.incrementAndGet();
+            if(adaptiveMaxMultiplier > 1){
+                adapt(lastDuration);
+            }
+        }
+    }
+
+    /**
+     * 根据本次执行耗时调整间隔倍数: 耗时超过阈值时倍数加倍(不超过上限),
+     * 耗时低于阈值的一半时倍数逐次减一,逐步恢复到配置的间隔
+     * @param duration
+     */
+    private void adapt(long duration){
+        long threshold = intervalMillis * adaptiveRatio / 100;
+        int multiplier = stepMultiplier;
+        if(duration > threshold && multiplier < adaptiveMaxMultiplier){
+            stepMultiplier = Math.min(multiplier * 2,adaptiveMaxMultiplier);
+            log.warn("任务 {} 执行耗时 {} 毫秒,超过阈值 {} 毫秒,调度间隔调整为 {} 秒",name,duration,threshold,intervalMillis * stepMultiplier / 1000);
+        }else if(duration <= threshold / 2 && multiplier > 1){
+            stepMultiplier = multiplier - 1;
+            log.info("任务 {} 执行耗时恢复正常,调度间隔调整为 {} 秒",name,intervalMillis * stepMultiplier / 1000);
+        }
+    }
+
+    void setAdaptive(int ratio, int maxMultiplier){
+        this.adaptiveRatio = ratio;
+        this.adaptiveMaxMultiplier = maxMultiplier;
+    }
+
+    void onScheduled(long startTime, long phaseMillis){
+        this.startTime = startTime;
+        this.phaseMillis = phaseMillis;
+    }
+
+    void onMissed(long count){
+        missed.addAndGet(count);
+    }
+
+    void cancel(){
+        cancelled = true;
+    }
+
+    boolean isCancelled(){
+        return cancelled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public JobDataMap getJobDataMap() {
+        return jobDataMap;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * 当前的有效执行间隔(毫秒),自适应调度时为配置的间隔乘以当前倍数
+     * @return
+     */
+    public long getEffectiveIntervalMillis() {
+        return intervalMillis * stepMultiplier;
+    }
+
+    /**
+     * 因上一次执行未结束而跳过的次数
+     * @return
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * 最近一次执行的耗时(毫秒)
+     * @return
+     */
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    /**
+     * 任务加入调度的时间(毫秒)
+     * @return
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 任务的统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("interval",intervalMillis / 1000);
+        status.put("phaseMillis",phaseMillis);
+        status.put("stepMultiplier",stepMultiplier);
+        status.put("runs",runs.get());
+        status.put("active",active.get());
+        status.put("failures",failures.get());
+        status.put("missed",missed.get());
+        status.put("rejected",rejected.get());
+        status.put("skipped",skipped.get());
+        status.put("coalesced",coalesced.get());
+        status.put("lastStartTime",lastStartTime);
+        status.put("lastDuration",lastDuration);
+        JSONObject durationJson = duration.toJSON();
+        status.put("avgDuration",durationJson.get("avg"));
+        status.put("maxDuration",durationJson.get("max"));
+        status.put("p99Duration",durationJson.get("p99"));
+        status.put("p99Lateness",lateness.percentile(99));
+        return status;
+    }
+}
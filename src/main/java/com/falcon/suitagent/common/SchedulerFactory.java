@@ -5,9 +5,7 @@
 package com.falcon.suitagent.common;
 
 import com.falcon.suitagent.config.AgentConfiguration;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.impl.StdSchedulerFactory;
+import com.falcon.suitagent.falcon.AgentMetrics;
 
 /*
  * 修订记录:
@@ -19,15 +17,41 @@ import org.quartz.impl.StdSchedulerFactory;
  */
 public class SchedulerFactory {
 
+    /**
+     * 时间轮的槽数
+     */
+    private static final int WHEEL_SIZE = 512;
+    /**
+     * 工作线程全忙时可排队的任务数
+     */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static TimingWheelScheduler scheduler;
+
     /**
      * 获取调度器
      * @return
-     * @throws SchedulerException
-     * 调度器获取失败异常
      */
-    public static Scheduler getScheduler() throws SchedulerException {
-        org.quartz.SchedulerFactory sf = new StdSchedulerFactory(AgentConfiguration.INSTANCE.getQuartzConfPath());
-        return sf.getScheduler();
+    public static synchronized TimingWheelScheduler getScheduler() {
+        if(scheduler == null){
+            AgentConfiguration conf = AgentConfiguration.INSTANCE;
+            scheduler = new TimingWheelScheduler(conf.getSchedulerTick(),WHEEL_SIZE,conf.getSchedulerThreads(),QUEUE_CAPACITY,
+                    conf.getSchedulerMissedTick(),conf.getSchedulerOverlap(),conf.isSchedulerSpread(),
+                    conf.getSchedulerAdaptiveRatio(),conf.isSchedulerAdaptiveEnable() ? conf.getSchedulerAdaptiveMaxMultiplier() : 1);
+            AgentMetrics.counter("scheduler.skipped",null,scheduler::getSkipped);
+        }
+        return scheduler;
+    }
+
+    /**
+     * 关闭调度器
+     * @param timeout
+     * 等待执行中的任务完成的时间(毫秒)
+     */
+    public static synchronized void shutdown(long timeout){
+        if(scheduler != null){
+            scheduler.shutdown(timeout);
+        }
     }
 
 }
@@ -0,0 +1,319 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.common;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:36 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮调度器,取代每个插件一个Quartz cron任务的调度方式
+ * 一个调度线程按固定刻度推进时间轮,到期的任务交给工作线程池执行;工作线程空闲后自动退出。
+ * 每个任务按名称得到确定的相位偏移,同一step的任务分散在整个周期内执行,不再集中在同一秒触发。
+ * 任务错过调度时间达到一个周期以上时按 {@link MissedTickPolicy} 处理,之后回到原有相位,不产生漂移。
+ * 同一任务任何时刻最多只有一次执行,到期时上一次执行仍未结束的按 {@link OverlapPolicy} 跳过或合并。
+ * 启用自适应调度时,执行缓慢的任务的间隔按整数倍拉长,下一次调度时间仍保持原有相位。
+ * @author agent@local
+ */
+@Slf4j
+public class TimingWheelScheduler {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<ArrayDeque<ScheduledJob>> wheel;
+    private final MissedTickPolicy missedTickPolicy;
+    private final OverlapPolicy overlapPolicy;
+    private final boolean spread;
+    private final int adaptiveRatio;
+    private final int adaptiveMaxMultiplier;
+
+    private final ConcurrentHashMap<String,ScheduledJob> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ScheduledJob> pendingJobs = new ConcurrentLinkedQueue<>();
+    private final ThreadPoolExecutor executor;
+
+    private final Object lock = new Object();
+    private Thread worker;
+    private volatile boolean shutdown = false;
+    /**
+     * 下一个待处理的刻度,只由调度线程访问
+     */
+    private long tick;
+    private volatile long startTime;
+
+    /**
+     * @param tickMillis
+     * 时间轮的刻度(毫秒)
+     * @param wheelSize
+     * 时间轮的槽数,会向上取整为2的幂
+     * @param threads
+     * 工作线程的最大数量
+     * @param queueCapacity
+     * 工作线程全忙时可排队的任务数,超出时本次执行被拒绝
+     * @param missedTickPolicy
+     * @param overlapPolicy
+     * @param spread
+     * 是否为任务分配相位偏移
+     * @param adaptiveRatio
+     * 自适应调度: 执行耗时超过间隔的该百分比时拉长间隔
+     * @param adaptiveMaxMultiplier
+     * 自适应调度: 间隔的最大倍数,为1时不启用
+     */
+    public TimingWheelScheduler(long tickMillis, int wheelSize, int threads, int queueCapacity, MissedTickPolicy missedTickPolicy, OverlapPolicy overlapPolicy, boolean spread,
+                                int adaptiveRatio, int adaptiveMaxMultiplier) {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1,1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.missedTickPolicy = missedTickPolicy;
+        this.overlapPolicy = overlapPolicy;
+        this.spread = spread;
+        this.adaptiveRatio = adaptiveRatio;
+        this.adaptiveMaxMultiplier = adaptiveMaxMultiplier;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r);
+                    t.setName("agentScheduler-worker-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        //空闲的工作线程自动退出
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 加入调度,同名的任务会被替换
+     * @param job
+     * @return
+     * true : 替换了同名的任务
+     */
+    public boolean schedule(ScheduledJob job){
+        if(shutdown){
+            throw new IllegalStateException("调度器已关闭");
+        }
+        start();
+        long now = System.currentTimeMillis();
+        long interval = job.getIntervalMillis();
+        long phase = spread ? phase(job.getName(),interval) : 0;
+        //下一个满足 time % interval == phase 的时间点
+        job.deadline = now - Math.floorMod(now - phase,interval) + interval;
+        job.onScheduled(now,phase);
+        job.setAdaptive(adaptiveRatio,adaptiveMaxMultiplier);
+        ScheduledJob old = jobs.put(job.getName(),job);
+        if(old != null){
+            old.cancel();
+        }
+        pendingJobs.add(job);
+        return old != null;
+    }
+
+    /**
+     * 取消调度
+     * @param name
+     * @return
+     */
+    public boolean unschedule(String name){
+        ScheduledJob job = jobs.remove(name);
+        if(job != null){
+            //调度线程下次经过该任务时将其丢弃
+            job.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获取任务
+     * @param name
+     * @return
+     */
+    public ScheduledJob getJob(String name){
+        return jobs.get(name);
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private void start(){
+        synchronized (lock){
+            if(worker == null){
+                startTime = System.currentTimeMillis() / tickMillis * tickMillis;
+                worker = new Thread(this::work,"agentScheduler-wheel");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+    }
+
+    private void work(){
+        while (!shutdown){
+            long deadline = startTime + (tick + 1) * tickMillis;
+            long sleep = deadline - System.currentTimeMillis();
+            if(sleep > 0){
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            long current = tick++;
+            transferPendingJobs();
+            expire(current,System.currentTimeMillis());
+        }
+    }
+
+    private void transferPendingJobs(){
+        ScheduledJob job;
+        while ((job = pendingJobs.poll()) != null){
+            if(!job.isCancelled()){
+                place(job);
+            }
+        }
+    }
+
+    /**
+     * 将任务放入其调度时间所在的槽
+     * @param job
+     */
+    private void place(ScheduledJob job){
+        long target = Math.max((job.deadline - startTime) / tickMillis,tick);
+        job.remainingRounds = (target - tick) / wheel.size();
+        wheel.get((int) (target & mask)).add(job);
+    }
+
+    private void expire(long current, long now){
+        ArrayDeque<ScheduledJob> bucket = wheel.get((int) (current & mask));
+        for (int i = bucket.size(); i > 0; i--) {
+            ScheduledJob job = bucket.poll();
+            if(job.isCancelled()){
+                continue;
+            }
+            if(job.remainingRounds > 0){
+                job.remainingRounds--;
+                bucket.add(job);
+                continue;
+            }
+            fire(job,now);
+            place(job);
+        }
+    }
+
+    private void fire(ScheduledJob job, long now){
+        long scheduledTime = job.deadline;
+        long interval = job.getEffectiveIntervalMillis();
+        long late = now - scheduledTime;
+        long missedPeriods = late >= interval ? late / interval : 0;
+        //下一次调度时间保持原有相位
+        job.deadline = scheduledTime + (missedPeriods + 1) * interval;
+        if(missedPeriods > 0){
+            if(missedTickPolicy == MissedTickPolicy.SKIP){
+                job.onMissed(missedPeriods + 1);
+                log.warn("任务 {} 错过了 {} 次调度,已跳过",job.getName(),missedPeriods + 1);
+                return;
+            }
+            //补执行一次,其余的合并
+            job.onMissed(missedPeriods);
+            log.warn("任务 {} 错过了 {} 次调度,补执行一次",job.getName(),missedPeriods + 1);
+        }
+        if(!job.tryStart(overlapPolicy)){
+            log.warn("任务 {} 的上一次执行尚未结束,本次{}",job.getName(),overlapPolicy == OverlapPolicy.SKIP ? "已跳过" : "将在其结束后合并执行");
+            return;
+        }
+        try {
+            executor.execute(() -> job.run(scheduledTime));
+        } catch (RejectedExecutionException e) {
+            job.onRejected();
+            log.warn("调度工作线程繁忙,任务 {} 本次未执行",job.getName());
+        }
+    }
+
+    /**
+     * 根据任务名称计算确定的相位偏移,按刻度对齐
+     * @param name
+     * @param interval
+     * @return
+     */
+    private long phase(String name, long interval){
+        int h = name.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return Math.floorMod(h,interval) / tickMillis * tickMillis;
+    }
+
+    /**
+     * 关闭调度器,等待执行中的任务完成
+     * @param timeout
+     * 等待时间(毫秒)
+     */
+    public void shutdown(long timeout){
+        shutdown = true;
+        synchronized (lock){
+            if(worker != null){
+                worker.interrupt();
+            }
+        }
+        for (ScheduledJob job : jobs.values()) {
+            job.cancel();
+        }
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(timeout,TimeUnit.MILLISECONDS)){
+                log.warn("调度器关闭超时,仍有任务在执行");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 所有任务因上一次执行未结束而跳过的次数之和
+     * @return
+     */
+    public long getSkipped(){
+        long skipped = 0;
+        for (ScheduledJob job : jobs.values()) {
+            skipped += job.getSkipped();
+        }
+        return skipped;
+    }
+
+    /**
+     * 调度器及各任务的统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("tickMillis",tickMillis);
+        status.put("wheelSize",wheel.size());
+        status.put("missedTickPolicy",missedTickPolicy.getConf());
+        status.put("overlapPolicy",overlapPolicy.getConf());
+        status.put("adaptiveMaxMultiplier",adaptiveMaxMultiplier);
+        status.put("skipped",getSkipped());
+        status.put("workers",executor.getPoolSize());
+        status.put("activeWorkers",executor.getActiveCount());
+        status.put("queued",executor.getQueue().size());
+        JSONObject jobStatus = new JSONObject(true);
+        for (Map.Entry<String, ScheduledJob> entry : new TreeMap<>(jobs).entrySet()) {
+            jobStatus.put(entry.getKey(),entry.getValue().status());
+        }
+        status.put("jobs",jobStatus);
+        return status;
+    }
+}
@@ -4,11 +4,20 @@
  */
 package com.falcon.suitagent.config;
 
+import com.falcon.suitagent.common.MissedTickPolicy;
+import com.falcon.suitagent.common.OverlapPolicy;
+import com.falcon.suitagent.falcon.BackpressurePolicy;
+import com.falcon.suitagent.falcon.PushCompression;
 import com.falcon.suitagent.util.StringUtils;
 import lombok.Getter;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /*
@@ -28,10 +37,6 @@ public enum  AgentConfiguration {
     //版本不能大于 x.9
     public static final float VERSION = (float)  18.1;
 
-    /**
-     * quartz配置文件路径
-     */
-    private String quartzConfPath = null;
     /**
      * push到falcon的地址
      */
@@ -98,6 +103,71 @@ public enum  AgentConfiguration {
      */
     private int agentMaxThreadCount = 200;
 
+    /**
+     * 是否使用虚拟线程执行采集任务(需要JDK21及以上),并发数由agentMaxThreadCount限制
+     */
+    private boolean agentVirtualThreadEnable = false;
+
+    /**
+     * 每个插件隔离执行器的最大并发数
+     */
+    private int bulkheadThreads = 10;
+
+    /**
+     * 每个插件隔离执行器的等待队列容量
+     */
+    private int bulkheadQueue = 100;
+
+    /**
+     * 一次采集的时间预算占插件step的百分比
+     */
+    private int collectDeadlineRatio = 80;
+
+    /**
+     * JMX插件同时采集的JMX连接数
+     */
+    private int jmxParallelism = 4;
+
+    /**
+     * 调度时间轮的刻度(毫秒)
+     */
+    private int schedulerTick = 100;
+
+    /**
+     * 调度器工作线程的最大数量,空闲的工作线程会自动退出
+     */
+    private int schedulerThreads = 20;
+
+    /**
+     * 任务错过调度时间达到一个周期以上时的处理策略
+     */
+    private MissedTickPolicy schedulerMissedTick = MissedTickPolicy.FIRE_ONCE;
+
+    /**
+     * 任务到期时上一次执行仍未结束的处理策略
+     */
+    private OverlapPolicy schedulerOverlap = OverlapPolicy.SKIP;
+
+    /**
+     * 是否启用自适应调度
+     */
+    private boolean schedulerAdaptiveEnable = false;
+
+    /**
+     * 自适应调度: 执行耗时超过step的该百分比时拉长调度间隔
+     */
+    private int schedulerAdaptiveRatio = 50;
+
+    /**
+     * 自适应调度: 调度间隔相对step的最大倍数
+     */
+    private int schedulerAdaptiveMaxMultiplier = 4;
+
+    /**
+     * 是否为任务分配相位偏移,使同一step的任务分散在整个周期内执行
+     */
+    private boolean schedulerSpread = true;
+
     /**
      * JMX连接是否支持本地连接
      */
@@ -112,13 +182,203 @@ public enum  AgentConfiguration {
      */
     private boolean dockerRuntime = false;
 
+    /**
+     * push队列容量
+     */
+    private int pushQueueCapacity = 20000;
+
+    /**
+     * 每批push的最大报告数
+     */
+    private int pushBatchSize = 500;
+
+    /**
+     * 每批push的最长等待时间(毫秒)
+     */
+    private int pushBatchInterval = 1000;
+
+    /**
+     * push队列满时的处理策略
+     */
+    private BackpressurePolicy pushBackpressure = BackpressurePolicy.BLOCK;
+
+    /**
+     * block策略下,入队的最长等待时间(毫秒)
+     */
+    private int pushBlockTimeout = 5000;
+
+    /**
+     * 跨插件合并窗口的等待时间(毫秒),0为不合并
+     */
+    private int pushCoalesceWindow = 3000;
+
+    /**
+     * 每个合并批次的最大报告数
+     */
+    private int pushCoalesceMaxSize = 2000;
+
+    /**
+     * 是否过滤值未变化的GAUGE报告
+     */
+    private boolean pushSuppressEnable = false;
+
+    /**
+     * 值未变化的GAUGE报告每隔多少个周期强制发送一次
+     */
+    private int pushSuppressHeartbeat = 10;
+
+    /**
+     * 是否启用push失败数据的磁盘溢出队列
+     */
+    private boolean pushSpillEnable = true;
+
+    /**
+     * 磁盘溢出队列的目录
+     */
+    private String pushSpillDir;
+
+    /**
+     * 磁盘溢出队列的容量上限(MB)
+     */
+    private int pushSpillMaxSize = 256;
+
+    /**
+     * 磁盘溢出队列每个分段文件的大小(MB)
+     */
+    private int pushSpillSegmentSize = 16;
+
+    /**
+     * 磁盘溢出数据每秒最多回放的报告数
+     */
+    private int pushSpillReplayRate = 2000;
+
+    /**
+     * push的并发数,同时也是到push地址保持的keep-alive连接数
+     */
+    private int pushConcurrency = 2;
+
+    /**
+     * push的keep-alive空闲连接保持时间(秒)
+     */
+    private int pushKeepAlive = 300;
+
+    /**
+     * push的连接超时(毫秒)
+     */
+    private int pushConnectTimeout = 10000;
+
+    /**
+     * push的读取超时(毫秒)
+     */
+    private int pushReadTimeout = 10000;
+
+    /**
+     * push请求体的压缩方式
+     */
+    private PushCompression pushCompression = PushCompression.NONE;
+
+    /**
+     * push请求体达到此字节数才进行压缩
+     */
+    private int pushCompressThreshold = 8192;
+
+    /**
+     * transfer的RPC地址列表(host:port)
+     * 配置后通过JSON-RPC直接上报到transfer,不再经由本地falcon-agent转发
+     */
+    private List<String> pushTransferAddresses = new ArrayList<>();
+
+    /**
+     * 是否启用push的熔断器
+     */
+    private boolean pushBreakerEnable = true;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private int pushBreakerFailureThreshold = 5;
+
+    /**
+     * 首次熔断的时间(毫秒),之后每次连续熔断时间加倍
+     */
+    private int pushBreakerBackoffBase = 1000;
+
+    /**
+     * 最长的熔断时间(毫秒)
+     */
+    private int pushBreakerBackoffMax = 60000;
+
+    /**
+     * 监控数据的输出目标: falcon 、file 、ring 、history
+     */
+    private List<String> sinks = new ArrayList<>(Collections.singletonList("falcon"));
+
+    /**
+     * 每个输出目标的队列可容纳的批次数
+     */
+    private int sinkQueueCapacity = 100;
+
+    /**
+     * file输出目标的目录
+     */
+    private String sinkFileDir;
+
+    /**
+     * file输出目标单个文件的大小(MB)
+     */
+    private int sinkFileMaxSize = 64;
+
+    /**
+     * file输出目标保留的滚动文件个数
+     */
+    private int sinkFileMaxFiles = 5;
+
+    /**
+     * ring输出目标的环形缓冲区容量
+     */
+    private int sinkRingCapacity = 10000;
+
+    /**
+     * history输出目标每个序列保留的数据点数
+     */
+    private int sinkHistoryPoints = 240;
+
+    /**
+     * history输出目标的内存预算(MB)
+     */
+    private int sinkHistoryMemory = 32;
+
+    /**
+     * history输出目标中序列超过此时间(秒)未更新则被清除
+     */
+    private int sinkHistoryIdle = 3600;
+
+    /**
+     * 启用采样的插件每个step附加上报的汇总指标: min 、max 、avg 、p95
+     */
+    private List<String> sampleRollups = new ArrayList<>(Arrays.asList("max","p95"));
+
 
     private static final String CONF_AGENT_ENDPOINT = "agent.endpoint";
     private static final String CONF_AGENT_HOME = "agent.home.dir";
     private static final String CONF_AGENT_FLUSH_TIME = "agent.flush.time";
     private static final String CONF_AGENT_MAX_THREAD = "agent.thread.maxCount";
+    private static final String CONF_AGENT_VIRTUAL_THREAD_ENABLE = "agent.thread.virtual.enable";
+    private static final String CONF_AGENT_BULKHEAD_THREADS = "agent.bulkhead.threads";
+    private static final String CONF_AGENT_BULKHEAD_QUEUE = "agent.bulkhead.queue";
+    private static final String CONF_AGENT_COLLECT_DEADLINE_RATIO = "agent.collect.deadline.ratio";
+    private static final String CONF_AGENT_JMX_PARALLELISM = "agent.jmx.parallelism";
+    private static final String CONF_AGENT_SCHEDULER_TICK = "agent.scheduler.tick";
+    private static final String CONF_AGENT_SCHEDULER_THREADS = "agent.scheduler.threads";
+    private static final String CONF_AGENT_SCHEDULER_MISSED_TICK = "agent.scheduler.missedTick";
+    private static final String CONF_AGENT_SCHEDULER_SPREAD = "agent.scheduler.spread";
+    private static final String CONF_AGENT_SCHEDULER_OVERLAP = "agent.scheduler.overlap";
+    private static final String CONF_AGENT_SCHEDULER_ADAPTIVE_ENABLE = "agent.scheduler.adaptive.enable";
+    private static final String CONF_AGENT_SCHEDULER_ADAPTIVE_RATIO = "agent.scheduler.adaptive.ratio";
+    private static final String CONF_AGENT_SCHEDULER_ADAPTIVE_MAX_MULTIPLIER = "agent.scheduler.adaptive.maxMultiplier";
 
     private static final String CONF_AGENT_FALCON_PUSH_URL = "agent.falcon.push.url";
+    private static final String CONF_AGENT_FALCON_TRANSFER_ADDRESSES = "agent.falcon.transfer.addresses";
     private static final String CONF_AGENT_PORT = "agent.port";
     private static final String CONF_AGENT_WEB_PORT = "agent.web.port";
     private static final String CONF_AGENT_WEB_ENABLE = "agent.web.enable";
@@ -128,6 +388,42 @@ public enum  AgentConfiguration {
     private static final String FALCON_CONF_DIR_PATH = "agent.falcon.conf.dir";
     private static final String CONF_AGENT_JMX_LOCAL_CONNECT = "agent.jmx.localConnectSupport";
     private static final String CONF_AGENT_UPDATE_URL = "agent.update.pack.url";
+    private static final String CONF_AGENT_PUSH_QUEUE_CAPACITY = "agent.push.queue.capacity";
+    private static final String CONF_AGENT_PUSH_BATCH_SIZE = "agent.push.batch.size";
+    private static final String CONF_AGENT_PUSH_BATCH_INTERVAL = "agent.push.batch.interval";
+    private static final String CONF_AGENT_PUSH_BACKPRESSURE = "agent.push.backpressure";
+    private static final String CONF_AGENT_PUSH_BLOCK_TIMEOUT = "agent.push.block.timeout";
+    private static final String CONF_AGENT_PUSH_COALESCE_WINDOW = "agent.push.coalesce.window";
+    private static final String CONF_AGENT_PUSH_COALESCE_MAX_SIZE = "agent.push.coalesce.maxSize";
+    private static final String CONF_AGENT_PUSH_SUPPRESS_ENABLE = "agent.push.suppress.enable";
+    private static final String CONF_AGENT_PUSH_SUPPRESS_HEARTBEAT = "agent.push.suppress.heartbeat";
+    private static final String CONF_AGENT_PUSH_SPILL_ENABLE = "agent.push.spill.enable";
+    private static final String CONF_AGENT_PUSH_SPILL_DIR = "agent.push.spill.dir";
+    private static final String CONF_AGENT_PUSH_SPILL_MAX_SIZE = "agent.push.spill.maxSize";
+    private static final String CONF_AGENT_PUSH_SPILL_SEGMENT_SIZE = "agent.push.spill.segmentSize";
+    //分段文件以内存映射方式读写,单个文件须小于2GB
+    private static final int MAX_SPILL_SEGMENT_SIZE = 1024;
+    private static final String CONF_AGENT_PUSH_SPILL_REPLAY_RATE = "agent.push.spill.replay.rate";
+    private static final String CONF_AGENT_PUSH_CONCURRENCY = "agent.push.concurrency";
+    private static final String CONF_AGENT_PUSH_KEEP_ALIVE = "agent.push.keepAlive";
+    private static final String CONF_AGENT_PUSH_CONNECT_TIMEOUT = "agent.push.connect.timeout";
+    private static final String CONF_AGENT_PUSH_READ_TIMEOUT = "agent.push.read.timeout";
+    private static final String CONF_AGENT_PUSH_COMPRESS = "agent.push.compress";
+    private static final String CONF_AGENT_PUSH_COMPRESS_THRESHOLD = "agent.push.compress.threshold";
+    private static final String CONF_AGENT_PUSH_BREAKER_ENABLE = "agent.push.breaker.enable";
+    private static final String CONF_AGENT_PUSH_BREAKER_FAILURE_THRESHOLD = "agent.push.breaker.failureThreshold";
+    private static final String CONF_AGENT_PUSH_BREAKER_BACKOFF_BASE = "agent.push.breaker.backoff.base";
+    private static final String CONF_AGENT_PUSH_BREAKER_BACKOFF_MAX = "agent.push.breaker.backoff.max";
+    private static final String CONF_AGENT_SINKS = "agent.sinks";
+    private static final String CONF_AGENT_SINK_QUEUE_CAPACITY = "agent.sink.queue.capacity";
+    private static final String CONF_AGENT_SINK_FILE_DIR = "agent.sink.file.dir";
+    private static final String CONF_AGENT_SINK_FILE_MAX_SIZE = "agent.sink.file.maxSize";
+    private static final String CONF_AGENT_SINK_FILE_MAX_FILES = "agent.sink.file.maxFiles";
+    private static final String CONF_AGENT_SINK_RING_CAPACITY = "agent.sink.ring.capacity";
+    private static final String CONF_AGENT_SINK_HISTORY_POINTS = "agent.sink.history.points";
+    private static final String CONF_AGENT_SINK_HISTORY_MEMORY = "agent.sink.history.memory";
+    private static final String CONF_AGENT_SINK_HISTORY_IDLE = "agent.sink.history.idle";
+    private static final String CONF_AGENT_SAMPLE_ROLLUPS = "agent.sample.rollups";
 
     private Properties agentConf = null;
 
@@ -181,13 +477,6 @@ public enum  AgentConfiguration {
             this.pluginConfPath = System.getProperty("agent.plugin.conf.dir");
         }
 
-        if(StringUtils.isEmpty(System.getProperty("agent.quartz.conf.path"))){
-            System.err.println("quartz 配置文件位置读取失败,请确定系统配置项:" + "agent.quartz.conf.path");
-            System.exit(0);
-        }else{
-            this.quartzConfPath = System.getProperty("agent.quartz.conf.path");
-        }
-
         agentConf = new Properties();
         try(FileInputStream in = new FileInputStream(this.agentConfPath)){
             agentConf.load(in);
@@ -199,6 +488,8 @@ public enum  AgentConfiguration {
             this.dockerRuntime = true;
         }
         init();
+        initScheduler();
+        initPush();
         initJMXCommon();
     }
 
@@ -317,7 +608,238 @@ public enum  AgentConfiguration {
             System.err.println(String.format("Agent启动失败,最大线程数%s无效:%s",CONF_AGENT_MAX_THREAD,agentConf.getProperty(CONF_AGENT_MAX_THREAD)));
             System.exit(0);
         }
+        this.agentVirtualThreadEnable = getBooleanConf(CONF_AGENT_VIRTUAL_THREAD_ENABLE,this.agentVirtualThreadEnable);
+        this.bulkheadThreads = getIntConf(CONF_AGENT_BULKHEAD_THREADS,this.bulkheadThreads,1);
+        this.bulkheadQueue = getIntConf(CONF_AGENT_BULKHEAD_QUEUE,this.bulkheadQueue,0);
+        this.collectDeadlineRatio = getIntConf(CONF_AGENT_COLLECT_DEADLINE_RATIO,this.collectDeadlineRatio,10);
+        this.jmxParallelism = getIntConf(CONF_AGENT_JMX_PARALLELISM,this.jmxParallelism,1);
+
+    }
+
+    /**
+     * 调度器配置
+     */
+    private void initScheduler(){
+        this.schedulerTick = getIntConf(CONF_AGENT_SCHEDULER_TICK,this.schedulerTick,10);
+        this.schedulerThreads = getIntConf(CONF_AGENT_SCHEDULER_THREADS,this.schedulerThreads,1);
+        this.schedulerSpread = getBooleanConf(CONF_AGENT_SCHEDULER_SPREAD,this.schedulerSpread);
+        String missedTick = getConf(CONF_AGENT_SCHEDULER_MISSED_TICK);
+        if(missedTick != null){
+            this.schedulerMissedTick = MissedTickPolicy.fromConf(missedTick);
+            if(this.schedulerMissedTick == null){
+                System.err.println(String.format("Agent启动失败,调度策略配置%s无效:%s,只能是 fire-once 或 skip",CONF_AGENT_SCHEDULER_MISSED_TICK,missedTick));
+                System.exit(0);
+            }
+        }
+        this.schedulerAdaptiveEnable = getBooleanConf(CONF_AGENT_SCHEDULER_ADAPTIVE_ENABLE,this.schedulerAdaptiveEnable);
+        this.schedulerAdaptiveRatio = getIntConf(CONF_AGENT_SCHEDULER_ADAPTIVE_RATIO,this.schedulerAdaptiveRatio,1);
+        this.schedulerAdaptiveMaxMultiplier = getIntConf(CONF_AGENT_SCHEDULER_ADAPTIVE_MAX_MULTIPLIER,this.schedulerAdaptiveMaxMultiplier,1);
+        String overlap = getConf(CONF_AGENT_SCHEDULER_OVERLAP);
+        if(overlap != null){
+            this.schedulerOverlap = OverlapPolicy.fromConf(overlap);
+            if(this.schedulerOverlap == null){
+                System.err.println(String.format("Agent启动失败,调度策略配置%s无效:%s,只能是 skip 或 coalesce",CONF_AGENT_SCHEDULER_OVERLAP,overlap));
+                System.exit(0);
+            }
+        }
+    }
+
+    private void initPush(){
+        this.pushQueueCapacity = getIntConf(CONF_AGENT_PUSH_QUEUE_CAPACITY,this.pushQueueCapacity,1);
+        this.pushBatchSize = getIntConf(CONF_AGENT_PUSH_BATCH_SIZE,this.pushBatchSize,1);
+        this.pushBatchInterval = getIntConf(CONF_AGENT_PUSH_BATCH_INTERVAL,this.pushBatchInterval,1);
+        this.pushBlockTimeout = getIntConf(CONF_AGENT_PUSH_BLOCK_TIMEOUT,this.pushBlockTimeout,0);
+        this.pushCoalesceWindow = getIntConf(CONF_AGENT_PUSH_COALESCE_WINDOW,this.pushCoalesceWindow,0);
+        this.pushCoalesceMaxSize = getIntConf(CONF_AGENT_PUSH_COALESCE_MAX_SIZE,this.pushCoalesceMaxSize,1);
+        this.pushSuppressEnable = getBooleanConf(CONF_AGENT_PUSH_SUPPRESS_ENABLE,this.pushSuppressEnable);
+        this.pushSuppressHeartbeat = getIntConf(CONF_AGENT_PUSH_SUPPRESS_HEARTBEAT,this.pushSuppressHeartbeat,1);
+
+        String backpressure = getConf(CONF_AGENT_PUSH_BACKPRESSURE);
+        if(backpressure != null){
+            this.pushBackpressure = BackpressurePolicy.fromConf(backpressure);
+            if(this.pushBackpressure == null){
+                System.err.println(String.format("Agent启动失败,push队列策略配置%s无效:%s,只能是 block 、drop-oldest 或 drop-lowest-priority",CONF_AGENT_PUSH_BACKPRESSURE,backpressure));
+                System.exit(0);
+            }
+        }
+
+        this.pushSpillEnable = getBooleanConf(CONF_AGENT_PUSH_SPILL_ENABLE,this.pushSpillEnable);
+        String spillDir = getConf(CONF_AGENT_PUSH_SPILL_DIR);
+        this.pushSpillDir = spillDir != null ? spillDir : this.agentHomeDir + File.separator + "data" + File.separator + "spill";
+        this.pushSpillMaxSize = getIntConf(CONF_AGENT_PUSH_SPILL_MAX_SIZE,this.pushSpillMaxSize,1);
+        this.pushSpillSegmentSize = getIntConf(CONF_AGENT_PUSH_SPILL_SEGMENT_SIZE,this.pushSpillSegmentSize,1,MAX_SPILL_SEGMENT_SIZE);
+        if(this.pushSpillSegmentSize > this.pushSpillMaxSize){
+            System.err.println(String.format("Agent启动失败,配置 %s 不能大于 %s",CONF_AGENT_PUSH_SPILL_SEGMENT_SIZE,CONF_AGENT_PUSH_SPILL_MAX_SIZE));
+            System.exit(0);
+        }
+        this.pushSpillReplayRate = getIntConf(CONF_AGENT_PUSH_SPILL_REPLAY_RATE,this.pushSpillReplayRate,1);
+
+        this.pushConcurrency = getIntConf(CONF_AGENT_PUSH_CONCURRENCY,this.pushConcurrency,1);
+        this.pushKeepAlive = getIntConf(CONF_AGENT_PUSH_KEEP_ALIVE,this.pushKeepAlive,1);
+        this.pushConnectTimeout = getIntConf(CONF_AGENT_PUSH_CONNECT_TIMEOUT,this.pushConnectTimeout,1);
+        this.pushReadTimeout = getIntConf(CONF_AGENT_PUSH_READ_TIMEOUT,this.pushReadTimeout,1);
+
+        String compress = getConf(CONF_AGENT_PUSH_COMPRESS);
+        if(compress != null){
+            this.pushCompression = PushCompression.fromConf(compress);
+            if(this.pushCompression == null){
+                System.err.println(String.format("Agent启动失败,push压缩配置%s无效:%s,只能是 none 、gzip 或 deflate",CONF_AGENT_PUSH_COMPRESS,compress));
+                System.exit(0);
+            }
+        }
+        this.pushCompressThreshold = getIntConf(CONF_AGENT_PUSH_COMPRESS_THRESHOLD,this.pushCompressThreshold,0);
+
+        String transferAddresses = getConf(CONF_AGENT_FALCON_TRANSFER_ADDRESSES);
+        if(transferAddresses != null){
+            for (String address : transferAddresses.split(",")) {
+                address = address.trim();
+                if(address.isEmpty()){
+                    continue;
+                }
+                if(!address.matches(".+:\\d{1,5}")){
+                    System.err.println(String.format("Agent启动失败,transfer地址配置%s无效:%s,格式为 host:port",CONF_AGENT_FALCON_TRANSFER_ADDRESSES,address));
+                    System.exit(0);
+                }
+                this.pushTransferAddresses.add(address);
+            }
+        }
 
+        this.pushBreakerEnable = getBooleanConf(CONF_AGENT_PUSH_BREAKER_ENABLE,this.pushBreakerEnable);
+        this.pushBreakerFailureThreshold = getIntConf(CONF_AGENT_PUSH_BREAKER_FAILURE_THRESHOLD,this.pushBreakerFailureThreshold,1);
+        this.pushBreakerBackoffBase = getIntConf(CONF_AGENT_PUSH_BREAKER_BACKOFF_BASE,this.pushBreakerBackoffBase,1);
+        this.pushBreakerBackoffMax = getIntConf(CONF_AGENT_PUSH_BREAKER_BACKOFF_MAX,this.pushBreakerBackoffMax,this.pushBreakerBackoffBase);
+
+        String sinkNames = getConf(CONF_AGENT_SINKS);
+        if(sinkNames != null){
+            this.sinks.clear();
+            for (String sink : sinkNames.split(",")) {
+                sink = sink.trim().toLowerCase();
+                if(sink.isEmpty() || this.sinks.contains(sink)){
+                    continue;
+                }
+                if(!"falcon".equals(sink) && !"file".equals(sink) && !"ring".equals(sink) && !"history".equals(sink)){
+                    System.err.println(String.format("Agent启动失败,输出目标配置%s无效:%s,只能是 falcon 、file 、ring 或 history",CONF_AGENT_SINKS,sink));
+                    System.exit(0);
+                }
+                this.sinks.add(sink);
+            }
+            if(this.sinks.isEmpty()){
+                System.err.println("Agent启动失败,未配置任何输出目标:" + CONF_AGENT_SINKS);
+                System.exit(0);
+            }
+        }
+        this.sinkQueueCapacity = getIntConf(CONF_AGENT_SINK_QUEUE_CAPACITY,this.sinkQueueCapacity,1);
+        String sinkFileDir = getConf(CONF_AGENT_SINK_FILE_DIR);
+        this.sinkFileDir = sinkFileDir != null ? sinkFileDir : this.agentHomeDir + File.separator + "data" + File.separator + "metrics";
+        this.sinkFileMaxSize = getIntConf(CONF_AGENT_SINK_FILE_MAX_SIZE,this.sinkFileMaxSize,1);
+        this.sinkFileMaxFiles = getIntConf(CONF_AGENT_SINK_FILE_MAX_FILES,this.sinkFileMaxFiles,1);
+        this.sinkRingCapacity = getIntConf(CONF_AGENT_SINK_RING_CAPACITY,this.sinkRingCapacity,1);
+        this.sinkHistoryPoints = getIntConf(CONF_AGENT_SINK_HISTORY_POINTS,this.sinkHistoryPoints,1);
+        this.sinkHistoryMemory = getIntConf(CONF_AGENT_SINK_HISTORY_MEMORY,this.sinkHistoryMemory,1);
+        this.sinkHistoryIdle = getIntConf(CONF_AGENT_SINK_HISTORY_IDLE,this.sinkHistoryIdle,60);
+
+        String rollups = getConf(CONF_AGENT_SAMPLE_ROLLUPS);
+        if(rollups != null){
+            this.sampleRollups.clear();
+            for (String rollup : rollups.split(",")) {
+                rollup = rollup.trim().toLowerCase();
+                if(rollup.isEmpty() || this.sampleRollups.contains(rollup)){
+                    continue;
+                }
+                if(!"min".equals(rollup) && !"max".equals(rollup) && !"avg".equals(rollup) && !"p95".equals(rollup)){
+                    System.err.println(String.format("Agent启动失败,采样汇总配置%s无效:%s,只能是 min 、max 、avg 或 p95",CONF_AGENT_SAMPLE_ROLLUPS,rollup));
+                    System.exit(0);
+                }
+                this.sampleRollups.add(rollup);
+            }
+        }
+    }
+
+    /**
+     * 是否需要启动本地的falcon-agent转发push的数据
+     * 直接上报到transfer时不需要
+     * @return
+     */
+    public boolean isLocalFalconAgent(){
+        if(!pushTransferAddresses.isEmpty()){
+            return false;
+        }
+        return agentPushUrl.contains("127.0.0.1") ||
+                agentPushUrl.contains("localhost") ||
+                agentPushUrl.contains("0.0.0.0");
+    }
+
+    /**
+     * 获取配置值,系统属性优先
+     * @param key
+     * @return
+     * null : 未配置
+     */
+    private String getConf(String key){
+        String value = System.getProperty(key);
+        if(StringUtils.isEmpty(value)){
+            value = agentConf.getProperty(key);
+        }
+        return StringUtils.isEmpty(value) ? null : value.trim();
+    }
+
+    /**
+     * 获取整型配置值
+     * @param key
+     * @param defaultValue
+     * 未配置时的默认值
+     * @param min
+     * 允许的最小值
+     * @return
+     */
+    private int getIntConf(String key,int defaultValue,int min){
+        return getIntConf(key,defaultValue,min,Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取整型配置值
+     * @param key
+     * @param defaultValue
+     * 未配置时的默认值
+     * @param min
+     * 允许的最小值
+     * @param max
+     * 允许的最大值
+     * @return
+     */
+    private int getIntConf(String key,int defaultValue,int min,int max){
+        String value = getConf(key);
+        if(value == null){
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            if(result < min){
+                System.err.println(String.format("Agent启动失败,配置 %s 不能小于%d: %s",key,min,value));
+                System.exit(0);
+            }
+            if(result > max){
+                System.err.println(String.format("Agent启动失败,配置 %s 不能大于%d: %s",key,max,value));
+                System.exit(0);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            System.err.println(String.format("Agent启动失败,配置%s无效:%s",key,value));
+            System.exit(0);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 获取布尔型配置值
+     * @param key
+     * @param defaultValue
+     * 未配置时的默认值
+     * @return
+     */
+    private boolean getBooleanConf(String key,boolean defaultValue){
+        String value = getConf(key);
+        return value == null ? defaultValue : "true".equals(value);
     }
 
     private void initJMXCommon(){
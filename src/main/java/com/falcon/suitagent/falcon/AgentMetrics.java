@@ -0,0 +1,155 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:19 创建
+ */
+
+import com.falcon.suitagent.config.AgentConfiguration;
+import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Agent自身的监控指标
+ * 各组件注册指标的取值方法,由上报线程按固定周期取值并通过 {@link ReportMetrics} 上报,
+ * 指标的tags固定包含 service=suitagent
+ * @author agent@local
+ */
+@Slf4j
+public class AgentMetrics {
+
+    /**
+     * 上报周期(秒)
+     */
+    public static final int STEP = 60;
+    private static final String SERVICE_TAG = "service=suitagent";
+
+    private static final Map<String,Metric> metrics = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService executor;
+
+    private static class Metric {
+        private final String name;
+        private final String tags;
+        private final CounterType counterType;
+        private final Supplier<? extends Number> supplier;
+
+        Metric(String name, String tags, CounterType counterType, Supplier<? extends Number> supplier) {
+            this.name = name;
+            this.tags = tags;
+            this.counterType = counterType;
+            this.supplier = supplier;
+        }
+    }
+
+    /**
+     * 注册GAUGE类型的指标
+     * @param name
+     * 指标名称
+     * @param tags
+     * 附加的tags,可为null
+     * @param supplier
+     * 指标的取值方法,返回null时本周期不上报
+     */
+    public static void gauge(String name, String tags, Supplier<? extends Number> supplier){
+        register(name,tags,CounterType.GAUGE,supplier);
+    }
+
+    /**
+     * 注册COUNTER类型的指标
+     * @param name
+     * 指标名称
+     * @param tags
+     * 附加的tags,可为null
+     * @param supplier
+     * 指标的取值方法,返回单调递增的累计值
+     */
+    public static void counter(String name, String tags, Supplier<? extends Number> supplier){
+        register(name,tags,CounterType.COUNTER,supplier);
+    }
+
+    private static void register(String name, String tags, CounterType counterType, Supplier<? extends Number> supplier){
+        String fullTags = tags == null || tags.isEmpty() ? SERVICE_TAG : SERVICE_TAG + "," + tags;
+        metrics.put(name + "/" + fullTags,new Metric(name,fullTags,counterType,supplier));
+    }
+
+    /**
+     * 注销指标
+     * @param name
+     * @param tags
+     */
+    public static void unregister(String name, String tags){
+        String fullTags = tags == null || tags.isEmpty() ? SERVICE_TAG : SERVICE_TAG + "," + tags;
+        metrics.remove(name + "/" + fullTags);
+    }
+
+    /**
+     * 启动上报线程
+     */
+    public static synchronized void start(){
+        if(executor != null){
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r,"agentMetrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(AgentMetrics::report,STEP,STEP,TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止上报线程
+     */
+    public static synchronized void stop(){
+        if(executor != null){
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void report(){
+        try {
+            String endpoint = MetricsCommon.getEndpointByTrans(AgentConfiguration.INSTANCE.getAgentEndpoint());
+            long timestamp = System.currentTimeMillis() / 1000;
+            List<FalconReportObject> reports = new ArrayList<>(metrics.size());
+            for (Metric metric : metrics.values()) {
+                Number value;
+                try {
+                    value = metric.supplier.get();
+                } catch (Exception e) {
+                    log.warn("Agent指标 {} 取值异常",metric.name,e);
+                    continue;
+                }
+                if(value == null){
+                    continue;
+                }
+                FalconReportObject reportObject = new FalconReportObject();
+                reportObject.setEndpoint(endpoint);
+                reportObject.setMetric(metric.name);
+                reportObject.setValue(value);
+                reportObject.setStep(STEP);
+                reportObject.setCounterType(metric.counterType);
+                reportObject.setTags(metric.tags);
+                reportObject.setTimestamp(timestamp);
+                reports.add(reportObject);
+            }
+            if(!reports.isEmpty()){
+                ReportMetrics.push(reports);
+            }
+        } catch (Exception e) {
+            log.error("Agent指标上报异常",e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:07 创建
+ */
+
+/**
+ * push队列满时的处理策略
+ * @author agent@local
+ */
+public enum BackpressurePolicy {
+    /**
+     * 阻塞入队的采集线程,直到队列有空闲或等待超时(超时后丢弃该报告)
+     */
+    BLOCK("block"),
+    /**
+     * 丢弃队列中最旧的报告,腾出空间给新报告
+     */
+    DROP_OLDEST("drop-oldest"),
+    /**
+     * 优先丢弃低优先级的报告,可用性(availability)报告不会因普通报告而被丢弃
+     */
+    DROP_LOWEST_PRIORITY("drop-lowest-priority");
+
+    /**
+     * 配置文件中的配置值
+     */
+    private String conf;
+
+    BackpressurePolicy(String conf) {
+        this.conf = conf;
+    }
+
+    public String getConf() {
+        return conf;
+    }
+
+    /**
+     * 根据配置值获取策略
+     * @param conf
+     * @return
+     * null : 无匹配的策略
+     */
+    public static BackpressurePolicy fromConf(String conf){
+        for (BackpressurePolicy policy : values()) {
+            if(policy.conf.equalsIgnoreCase(conf)){
+                return policy;
+            }
+        }
+        return null;
+    }
+}
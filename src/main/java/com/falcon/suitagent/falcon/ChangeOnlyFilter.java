@@ -0,0 +1,195 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:22 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GAUGE类型报告的变化过滤
+ * 以 endpoint+metric+tags 标识一个指标,值与上次发送相同的GAUGE报告不再发送,
+ * 但每隔 heartbeat 个周期强制发送一次,保证后端的数据不出现断点。
+ * 指标的状态保存在以64位哈希为键的开放寻址数组中,每个指标只占用三个long,不创建任何对象
+ * @author agent@local
+ */
+public class ChangeOnlyFilter {
+
+    private static final int SEGMENTS = 16;
+    /**
+     * FNV-1a 64位哈希的初始值
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /**
+     * 超过此时间(秒)未出现的指标在扩容时被清除
+     */
+    private static final long STALE_SECONDS = 24 * 60 * 60;
+
+    private final int heartbeat;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private long lastSeen;
+    private long lastSuppressed;
+
+    /**
+     * @param heartbeat
+     * 值未变化时,每隔多少个周期强制发送一次
+     */
+    public ChangeOnlyFilter(int heartbeat) {
+        this.heartbeat = heartbeat;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * 判断报告是否需要发送
+     * @param report
+     * @return
+     * false : 该报告的值未变化,且未到心跳周期
+     */
+    public boolean accept(FalconReportObject report){
+        if(report.getCounterType() != CounterType.GAUGE){
+            return true;
+        }
+        seen.incrementAndGet();
+        long key = report.getMetricKey().hash64();
+        long value = report.isNumeric() ? Double.doubleToLongBits(report.getDoubleValue()) * 0x9e3779b97f4a7c15L : hash(FNV_OFFSET,report.getValue());
+        long heartbeatSeconds = (long) heartbeat * Math.max(report.getStep(),1);
+        boolean send = segments[(int) (key >>> 60)].update(key,value,report.getTimestamp(),heartbeatSeconds);
+        if(!send){
+            suppressed.incrementAndGet();
+        }
+        return send;
+    }
+
+    /**
+     * 自上次调用以来被过滤的GAUGE报告的百分比
+     * @return
+     */
+    public synchronized double suppressionRatio(){
+        long currentSeen = seen.get();
+        long currentSuppressed = suppressed.get();
+        long deltaSeen = currentSeen - lastSeen;
+        long deltaSuppressed = currentSuppressed - lastSuppressed;
+        lastSeen = currentSeen;
+        lastSuppressed = currentSuppressed;
+        return deltaSeen == 0 ? 0 : Math.round(deltaSuppressed * 10000.0 / deltaSeen) / 100.0;
+    }
+
+    /**
+     * 统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("heartbeat",heartbeat);
+        int series = 0;
+        for (Segment segment : segments) {
+            series += segment.size();
+        }
+        status.put("series",series);
+        status.put("seen",seen.get());
+        status.put("suppressed",suppressed.get());
+        return status;
+    }
+
+    /**
+     * FNV-1a 64位哈希
+     * @param h
+     * 初始值,一般为 {@link #FNV_OFFSET}
+     * @param s
+     * @return
+     */
+    private static long hash(long h, String s){
+        if(s == null){
+            return h;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * 开放寻址的哈希表分段: 键、上次发送的值的哈希、上次发送的时间戳
+     */
+    private static final class Segment {
+        private long[] keys = new long[256];
+        private long[] values = new long[256];
+        private long[] sentTimes = new long[256];
+        private int size;
+
+        synchronized boolean update(long key, long value, long timestamp, long heartbeatSeconds){
+            int mask = keys.length - 1;
+            int index = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[index] != 0){
+                if(keys[index] == key){
+                    if(values[index] == value && timestamp - sentTimes[index] < heartbeatSeconds){
+                        return false;
+                    }
+                    values[index] = value;
+                    sentTimes[index] = timestamp;
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            sentTimes[index] = timestamp;
+            if(++size > keys.length * 3 / 4){
+                rehash(timestamp);
+            }
+            return true;
+        }
+
+        synchronized int size(){
+            return size;
+        }
+
+        /**
+         * 清除长期未出现的指标,必要时扩容
+         */
+        private void rehash(long now){
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            long[] oldSentTimes = sentTimes;
+            int live = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != 0 && now - oldSentTimes[i] < STALE_SECONDS){
+                    live++;
+                }
+            }
+            int capacity = oldKeys.length;
+            if(live > capacity / 2){
+                capacity *= 2;
+            }
+            keys = new long[capacity];
+            values = new long[capacity];
+            sentTimes = new long[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] == 0 || now - oldSentTimes[i] >= STALE_SECONDS){
+                    continue;
+                }
+                int index = (int) (oldKeys[i] ^ (oldKeys[i] >>> 32)) & mask;
+                while (keys[index] != 0){
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                sentTimes[index] = oldSentTimes[i];
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:19 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后打开,打开期间请求直接被拒绝;打开时间到期后进入半开状态,放行一个探测请求,
+ * 探测成功则关闭,失败则再次打开,且打开时间按指数退避(带随机抖动)增长
+ * @author agent@local
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED(0),
+        HALF_OPEN(1),
+        OPEN(2);
+
+        /**
+         * 上报的指标值
+         */
+        private int value;
+
+        State(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseBackoff;
+    private final long maxBackoff;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    /**
+     * 连续打开的次数,用于计算退避时间
+     */
+    private int openCount;
+    private long openUntil;
+    private boolean probing;
+
+    private long trips;
+    private long rejected;
+
+    /**
+     * @param name
+     * 名称,用于日志
+     * @param failureThreshold
+     * 连续失败多少次后打开
+     * @param baseBackoff
+     * 首次打开的时间(毫秒)
+     * @param maxBackoff
+     * 最长的打开时间(毫秒)
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseBackoff, long maxBackoff) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * 是否放行请求
+     * 放行后须调用 {@link #onSuccess()} 或 {@link #onFailure()}
+     * @return
+     */
+    public synchronized boolean allowRequest(){
+        switch (state){
+            case CLOSED:
+                return true;
+            case OPEN:
+                if(System.currentTimeMillis() >= openUntil){
+                    state = State.HALF_OPEN;
+                    probing = true;
+                    log.info("熔断器 {} 进入半开状态,放行探测请求",name);
+                    return true;
+                }
+                rejected++;
+                return false;
+            default:
+                //半开状态只放行一个探测请求
+                if(!probing){
+                    probing = true;
+                    return true;
+                }
+                rejected++;
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess(){
+        if(state != State.CLOSED){
+            log.info("熔断器 {} 已关闭",name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openCount = 0;
+        probing = false;
+    }
+
+    public synchronized void onFailure(){
+        probing = false;
+        if(state == State.HALF_OPEN){
+            trip();
+            return;
+        }
+        consecutiveFailures++;
+        if(state == State.CLOSED && consecutiveFailures >= failureThreshold){
+            trip();
+        }
+    }
+
+    private void trip(){
+        long backoff = Math.min(maxBackoff,baseBackoff << Math.min(openCount,30));
+        //在 [backoff/2, backoff] 之间随机,避免多个agent同时重试
+        long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        openCount++;
+        trips++;
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + jittered;
+        log.warn("熔断器 {} 已打开(连续失败 {} 次),{} 毫秒后尝试恢复",name,consecutiveFailures,jittered);
+    }
+
+    public synchronized State getState(){
+        return state;
+    }
+
+    /**
+     * 统计信息
+     * @return
+     */
+    public synchronized JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("state",state.name());
+        status.put("consecutiveFailures",consecutiveFailures);
+        status.put("trips",trips);
+        status.put("rejected",rejected);
+        if(state == State.OPEN){
+            status.put("retryIn",Math.max(openUntil - System.currentTimeMillis(),0));
+        }
+        return status;
+    }
+}
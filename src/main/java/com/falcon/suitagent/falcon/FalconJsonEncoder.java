@@ -0,0 +1,292 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:10 创建
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FalconReportObject集合的流式json编码器
+ * 直接将报告集合以UTF-8编码写入可复用的字节数组,不再为每个报告创建JSONObject、JSONArray及中间字符串。
+ * endpoint和tags在每个报告中大量重复,其转义后的字节序列会被缓存。
+ * 编码器与线程绑定,通过 {@link #get()} 获取,编码结果在下次编码前有效。
+ * @author agent@local
+ */
+public class FalconJsonEncoder {
+
+    private static final ThreadLocal<FalconJsonEncoder> LOCAL = ThreadLocal.withInitial(FalconJsonEncoder::new);
+
+    /**
+     * 初始缓冲区大小
+     */
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    /**
+     * 超过此大小的缓冲区在下次使用前将被释放,避免偶发的大批次长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+    /**
+     * 转义缓存的最大条数
+     */
+    private static final int MAX_CACHE_SIZE = 20000;
+
+    private static final ConcurrentHashMap<String,byte[]> ESCAPED_CACHE = new ConcurrentHashMap<>();
+
+    private static final byte[] ENDPOINT = bytes("\"endpoint\":");
+    private static final byte[] METRIC = bytes("\"metric\":");
+    private static final byte[] TIMESTAMP = bytes("\"timestamp\":");
+    private static final byte[] STEP = bytes("\"step\":");
+    private static final byte[] VALUE = bytes("\"value\":");
+    private static final byte[] COUNTER_TYPE = bytes("\"counterType\":");
+    private static final byte[] TAGS = bytes("\"tags\":");
+    private static final byte[][] COUNTER_TYPES = new byte[CounterType.values().length][];
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    static {
+        for (CounterType counterType : CounterType.values()) {
+            COUNTER_TYPES[counterType.ordinal()] = bytes("\"" + counterType.name() + "\"");
+        }
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    private FalconJsonEncoder() {
+    }
+
+    /**
+     * 获取当前线程的编码器
+     * @return
+     */
+    public static FalconJsonEncoder get(){
+        FalconJsonEncoder encoder = LOCAL.get();
+        encoder.reset();
+        return encoder;
+    }
+
+    private void reset(){
+        if(buffer.length > MAX_RETAINED_CAPACITY){
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        size = 0;
+    }
+
+    /**
+     * 将报告集合编码为json数组
+     * 格式与原 org.json 的输出一致,值为null的字段不输出
+     * @param reportObjects
+     * @return
+     */
+    public FalconJsonEncoder encode(Collection<FalconReportObject> reportObjects){
+        write((byte) '[');
+        boolean first = true;
+        for (FalconReportObject reportObject : reportObjects) {
+            if(reportObject == null){
+                continue;
+            }
+            if(!first){
+                write((byte) ',');
+            }
+            first = false;
+            encode(reportObject);
+        }
+        write((byte) ']');
+        return this;
+    }
+
+    private void encode(FalconReportObject reportObject){
+        write((byte) '{');
+        if(reportObject.getEndpoint() != null){
+            writeField(ENDPOINT);
+            writeCachedString(reportObject.getEndpoint());
+        }
+        if(reportObject.getMetric() != null){
+            writeField(METRIC);
+            writeString(reportObject.getMetric());
+        }
+        writeField(TIMESTAMP);
+        writeLong(reportObject.getTimestamp());
+        writeField(STEP);
+        writeLong(reportObject.getStep());
+        if(reportObject.getValueType() == FalconReportObject.VALUE_LONG && !reportObject.hasValueString()){
+            //整数值直接写入,不生成字符串
+            writeField(VALUE);
+            write((byte) '"');
+            writeLong(reportObject.getLongValue());
+            write((byte) '"');
+        }else if(reportObject.getValue() != null){
+            writeField(VALUE);
+            writeString(reportObject.getValue());
+        }
+        if(reportObject.getCounterType() != null){
+            writeField(COUNTER_TYPE);
+            write(COUNTER_TYPES[reportObject.getCounterType().ordinal()]);
+        }
+        if(reportObject.getTags() != null){
+            writeField(TAGS);
+            writeCachedString(reportObject.getTags());
+        }
+        write((byte) '}');
+    }
+
+    /**
+     * 写入字段名,非对象的第一个字段时先写入分隔符
+     * @param name
+     */
+    private void writeField(byte[] name){
+        if(buffer[size - 1] != '{'){
+            write((byte) ',');
+        }
+        write(name);
+    }
+
+    /**
+     * 编码结果的字节数组,有效长度为 {@link #size()}
+     * @return
+     */
+    public byte[] array(){
+        return buffer;
+    }
+
+    /**
+     * 编码结果的字节长度
+     * @return
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * 编码结果的拷贝
+     * @return
+     */
+    public byte[] toByteArray(){
+        return Arrays.copyOf(buffer,size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer,0,size,StandardCharsets.UTF_8);
+    }
+
+    private void writeCachedString(String value){
+        byte[] escaped = ESCAPED_CACHE.get(value);
+        if(escaped == null){
+            int start = size;
+            writeString(value);
+            escaped = Arrays.copyOfRange(buffer,start,size);
+            if(ESCAPED_CACHE.size() >= MAX_CACHE_SIZE){
+                ESCAPED_CACHE.clear();
+            }
+            ESCAPED_CACHE.put(value,escaped);
+            return;
+        }
+        write(escaped);
+    }
+
+    /**
+     * 写入json字符串(含引号),进行json转义及UTF-8编码
+     * @param value
+     */
+    private void writeString(String value){
+        //每个字符最多占用6个字节(控制字符的unicode转义)
+        ensureCapacity(value.length() * 6 + 2);
+        byte[] buf = buffer;
+        int pos = size;
+        buf[pos++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c < 0x80){
+                if(c == '"' || c == '\\'){
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) c;
+                }else if(c < 0x20){
+                    buf[pos++] = '\\';
+                    switch (c){
+                        case '\n': buf[pos++] = 'n'; break;
+                        case '\r': buf[pos++] = 'r'; break;
+                        case '\t': buf[pos++] = 't'; break;
+                        case '\b': buf[pos++] = 'b'; break;
+                        case '\f': buf[pos++] = 'f'; break;
+                        default:
+                            buf[pos++] = 'u';
+                            buf[pos++] = '0';
+                            buf[pos++] = '0';
+                            buf[pos++] = HEX[(c >> 4) & 0xF];
+                            buf[pos++] = HEX[c & 0xF];
+                    }
+                }else{
+                    buf[pos++] = (byte) c;
+                }
+            }else if(c < 0x800){
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c,value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            }else if(Character.isSurrogate(c)){
+                buf[pos++] = '?';
+            }else{
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buf[pos++] = '"';
+        size = pos;
+    }
+
+    private void writeLong(long value){
+        ensureCapacity(20);
+        if(value == Long.MIN_VALUE){
+            write(bytes(String.valueOf(value)));
+            return;
+        }
+        if(value < 0){
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }while (value != 0);
+        //反转数字
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte b = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = b;
+        }
+    }
+
+    private void write(byte b){
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private void write(byte[] bytes){
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes,0,buffer,size,bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int needed){
+        if(size + needed > buffer.length){
+            buffer = Arrays.copyOf(buffer,Math.max(buffer.length * 2,size + needed));
+        }
+    }
+
+    private static byte[] bytes(String s){
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
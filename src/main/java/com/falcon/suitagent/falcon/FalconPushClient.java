@@ -0,0 +1,197 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:13 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.util.LatencyHistogram;
+import com.falcon.suitagent.vo.HttpResult;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Falcon push地址的HTTP客户端
+ * 使用HTTP/1.1 keep-alive的连接池复用到push地址的TCP连接,避免每次push都进行握手及产生大量TIME_WAIT。
+ * 可选对超过阈值的请求体进行gzip/deflate压缩,接收方不支持Content-Encoding时自动回退为不压缩。
+ * @author agent@local
+ */
+@Slf4j
+public class FalconPushClient {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final String url;
+    private final OkHttpClient client;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private final PushCompression compression;
+    private final int compressThreshold;
+    private final ThreadLocal<PushCompressor> compressors;
+    /**
+     * 接收方拒绝了压缩的请求体,后续不再压缩
+     */
+    private volatile boolean compressionRejected = false;
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressCpuNanos = new AtomicLong();
+
+    /**
+     * Falcon push地址的HTTP客户端
+     * @param url
+     * push地址
+     * @param maxConnections
+     * 连接池保持的最大空闲连接数,与push的并发数一致
+     * @param keepAlive
+     * 空闲连接的保持时间(秒)
+     * @param connectTimeout
+     * 连接超时(毫秒)
+     * @param readTimeout
+     * 读取超时(毫秒)
+     * @param compression
+     * 请求体的压缩方式
+     * @param compressThreshold
+     * 请求体达到此字节数才进行压缩
+     */
+    public FalconPushClient(String url, int maxConnections, int keepAlive, int connectTimeout, int readTimeout,
+                            PushCompression compression, int compressThreshold) {
+        this.url = url;
+        this.compression = compression;
+        this.compressThreshold = compressThreshold;
+        this.compressors = ThreadLocal.withInitial(() -> new PushCompressor(compression));
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxConnections,keepAlive,TimeUnit.SECONDS))
+                .connectTimeout(connectTimeout,TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout,TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeout,TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    /**
+     * 发送json数据
+     * @param data
+     * UTF-8编码的json数据
+     * @param length
+     * data的有效长度
+     * @return
+     * @throws IOException
+     */
+    public HttpResult post(byte[] data, int length) throws IOException {
+        if(compression == PushCompression.NONE || compressionRejected || length < compressThreshold){
+            return execute(data,length,null);
+        }
+        long cpuStart = cpuTime();
+        PushCompressor compressor = compressors.get().compress(data,length);
+        compressCpuNanos.addAndGet(cpuTime() - cpuStart);
+        compressed.incrementAndGet();
+        rawBytes.addAndGet(length);
+        compressedBytes.addAndGet(compressor.size());
+
+        HttpResult result = execute(compressor.array(),compressor.size(),compression.getConf());
+        if(result.getStatus() == 400 || result.getStatus() == 415){
+            //接收方可能不支持Content-Encoding,以未压缩的数据重试
+            HttpResult retry = execute(data,length,null);
+            if(retry.getStatus() != result.getStatus()){
+                compressionRejected = true;
+                log.warn("push地址不支持 Content-Encoding: {} (响应码 {}),后续push将不再压缩",compression.getConf(),result.getStatus());
+            }
+            return retry;
+        }
+        return result;
+    }
+
+    private HttpResult execute(byte[] data, int length, String contentEncoding) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("Accept","application/json")
+                .post(RequestBody.create(JSON,data,0,length));
+        if(contentEncoding != null){
+            builder.header("Content-Encoding",contentEncoding);
+        }
+        Request request = builder.build();
+        requests.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try (Response response = client.newCall(request).execute()){
+            HttpResult result = new HttpResult();
+            result.setStatus(response.code());
+            ResponseBody body = response.body();
+            result.setResult(body == null ? "" : body.string());
+            result.setResponseTime(System.currentTimeMillis() - start);
+            latency.record(result.getResponseTime());
+            return result;
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            latency.record(System.currentTimeMillis() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * 当前线程的CPU时间(纳秒),不支持时以墙上时间代替
+     * @return
+     */
+    private static long cpuTime(){
+        if(THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()){
+            long time = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            if(time >= 0){
+                return time;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public void close(){
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * 客户端的统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("requests",requests.get());
+        status.put("errors",errors.get());
+        status.put("connections",client.connectionPool().connectionCount());
+        status.put("idleConnections",client.connectionPool().idleConnectionCount());
+        status.put("latency",latency.toJSON());
+        status.put("compression",compressionStatus());
+        return status;
+    }
+
+    private JSONObject compressionStatus(){
+        JSONObject status = new JSONObject(true);
+        status.put("encoding",compression.getConf());
+        status.put("active",compression != PushCompression.NONE && !compressionRejected);
+        status.put("threshold",compressThreshold);
+        long count = compressed.get();
+        long raw = rawBytes.get();
+        long out = compressedBytes.get();
+        status.put("compressed",count);
+        status.put("rawBytes",raw);
+        status.put("compressedBytes",out);
+        status.put("ratio",out == 0 ? 0 : Math.round(raw * 100.0 / out) / 100.0);
+        status.put("cpuMillis",compressCpuNanos.get() / 1000000);
+        status.put("avgCpuMicros",count == 0 ? 0 : compressCpuNanos.get() / count / 1000);
+        return status;
+    }
+}
@@ -4,6 +4,7 @@
  */
 package com.falcon.suitagent.falcon;
 
+import com.alibaba.fastjson.annotation.JSONField;
 import com.falcon.suitagent.util.StringUtils;
 import lombok.Getter;
 import lombok.Setter;
@@ -20,20 +21,18 @@ import javax.management.ObjectName;
  * push到falcon的数据报告对象
  * @author guqiu@yiji.com
  */
-@ToString
+@ToString(exclude = {"metricKey","valueType","longValue","doubleValue"})
 public class FalconReportObject implements Cloneable{
 
     /**
      *  标明Metric的主体(属主)，比如metric是cpu_idle，那么Endpoint就表示这是哪台机器的cpu_idle
      */
     @Getter
-    @Setter
     private String endpoint;
     /**
      * 最核心的字段，代表这个采集项具体度量的是什么, 比如是cpu_idle呢，还是memory_free, 还是qps
      */
     @Getter
-    @Setter
     private String metric;
     /**
      * 表示汇报该数据时的unix时间戳，注意是整数，代表的是秒
@@ -49,10 +48,15 @@ public class FalconReportObject implements Cloneable{
     private int step;
     /**
      * 代表该metric在当前时间点的值,数值类型
+     * 以数值设置时,字符串形式在首次使用(通常是序列化)时才生成
      */
-    @Getter
-    @Setter
     private String value;
+    /**
+     * 值的类型,见 VALUE_* 常量
+     */
+    private byte valueType;
+    private long longValue;
+    private double doubleValue;
     /**
      * 只能是COUNTER或者GAUGE二选一，前者表示该数据采集项为计时器类型，后者表示其为原值 (注意大小写)
      GAUGE：即用户上传什么样的值，就原封不动的存储
@@ -73,6 +77,16 @@ public class FalconReportObject implements Cloneable{
     @Setter
     private ObjectName objectName;
 
+    /**
+     * 序列标识,首次使用时获取,endpoint、metric或tags变化时失效
+     */
+    private MetricKey metricKey;
+
+    static final byte VALUE_NONE = 0;
+    static final byte VALUE_LONG = 1;
+    static final byte VALUE_DOUBLE = 2;
+    static final byte VALUE_TEXT = 3;
+
     @Override
     public FalconReportObject clone() {
         try {
@@ -102,7 +116,209 @@ public class FalconReportObject implements Cloneable{
         return tags;
     }
 
+    /**
+     * 值的字符串形式
+     * @return
+     */
+    public String getValue() {
+        String result = value;
+        if(result == null){
+            if(valueType == VALUE_LONG){
+                result = Long.toString(longValue);
+            }else if(valueType == VALUE_DOUBLE){
+                result = String.valueOf(doubleValue);
+            }
+            value = result;
+        }
+        return result;
+    }
+
+    /**
+     * 以字符串设置值,在此进行一次数值校验,之后通过 {@link #isNumeric()} 判断,不必再解析
+     * @param value
+     */
+    public void setValue(String value) {
+        this.value = value;
+        this.longValue = 0;
+        this.doubleValue = 0;
+        if(value == null){
+            this.valueType = VALUE_NONE;
+        }else if(parseLong(value)){
+            this.valueType = VALUE_LONG;
+        }else if(parseDouble(value)){
+            this.valueType = VALUE_DOUBLE;
+        }else{
+            this.valueType = VALUE_TEXT;
+        }
+    }
+
+    /**
+     * 以整数设置值
+     * @param value
+     */
+    public void setValue(long value) {
+        this.value = null;
+        this.valueType = VALUE_LONG;
+        this.longValue = value;
+        this.doubleValue = 0;
+    }
+
+    /**
+     * 以浮点数设置值,NaN及无穷大不是有效的监控值,以文本保存
+     * @param value
+     */
+    public void setValue(double value) {
+        if(Double.isNaN(value) || Double.isInfinite(value)){
+            setValue(String.valueOf(value));
+            return;
+        }
+        this.value = null;
+        this.valueType = VALUE_DOUBLE;
+        this.longValue = 0;
+        this.doubleValue = value;
+    }
+
+    /**
+     * 以数值对象设置值,Long 、Integer 、Short 、Byte 及 Double 不经过字符串,其他类型以其字符串形式设置
+     * @param value
+     */
+    public void setValue(Number value) {
+        if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte){
+            setValue(value.longValue());
+        }else if(value instanceof Double){
+            setValue(value.doubleValue());
+        }else{
+            setValue(value == null ? null : value.toString());
+        }
+    }
+
+    /**
+     * 值是否为有效的数值
+     * @return
+     */
+    @JSONField(serialize = false)
+    public boolean isNumeric() {
+        return valueType == VALUE_LONG || valueType == VALUE_DOUBLE;
+    }
+
+    /**
+     * 数值形式的值
+     * @return
+     * 值不是数值时返回NaN
+     */
+    @JSONField(serialize = false)
+    public double getDoubleValue() {
+        if(valueType == VALUE_LONG){
+            return longValue;
+        }
+        return valueType == VALUE_DOUBLE ? doubleValue : Double.NaN;
+    }
+
+    /**
+     * 值是否为整数,此时 {@link #getLongValue()} 返回精确值
+     * @return
+     */
+    @JSONField(serialize = false)
+    public boolean isIntegral() {
+        return valueType == VALUE_LONG;
+    }
+
+    @JSONField(serialize = false)
+    public long getLongValue() {
+        return valueType == VALUE_DOUBLE ? (long) doubleValue : longValue;
+    }
+
+    /**
+     * 值的类型,仅供序列化使用
+     * @return
+     */
+    byte getValueType() {
+        return valueType;
+    }
+
+    /**
+     * 值的字符串形式是否已存在
+     * @return
+     */
+    boolean hasValueString() {
+        return value != null;
+    }
+
+    /**
+     * 解析十进制整数,不产生异常及对象
+     */
+    private boolean parseLong(String s){
+        int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if(length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')){
+            negative = s.charAt(0) == '-';
+            i = 1;
+        }
+        //超过18位的整数可能溢出,交由浮点数解析
+        if(i == length || length - i > 18){
+            return false;
+        }
+        long result = 0;
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+            result = result * 10 + (c - '0');
+        }
+        this.longValue = negative ? -result : result;
+        return true;
+    }
+
+    private boolean parseDouble(String s){
+        String trimmed = s.trim();
+        if(trimmed.isEmpty()){
+            return false;
+        }
+        char first = trimmed.charAt(0);
+        //快速排除明显不是数字的文本,避免异常的开销
+        if(first != '-' && first != '+' && first != '.' && (first < '0' || first > '9')){
+            return false;
+        }
+        try {
+            double d = Double.parseDouble(trimmed);
+            if(Double.isNaN(d) || Double.isInfinite(d)){
+                return false;
+            }
+            this.doubleValue = d;
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     public void setTags(String tags) {
-        this.tags = tags.replace("\"","");
+        this.tags = tags.indexOf('"') == -1 ? tags : tags.replace("\"","");
+        this.metricKey = null;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+        this.metricKey = null;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+        this.metricKey = null;
+    }
+
+    /**
+     * 报告所属序列的驻留标识,tags顺序不同的同一序列得到同一实例
+     * @return
+     */
+    @JSONField(serialize = false)
+    public MetricKey getMetricKey() {
+        MetricKey key = metricKey;
+        if(key == null){
+            key = MetricKey.of(endpoint,metric,tags);
+            metricKey = key;
+        }
+        return key;
     }
 }
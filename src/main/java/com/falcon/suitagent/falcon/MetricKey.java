@@ -0,0 +1,299 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:28 创建
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 监控序列的标识: endpoint + metric + 规范化的tags
+ * tags去除引号及空白、去重并按字典序排列,因此tag顺序不同的同一序列得到同一标识。
+ * 通过 {@link #of(String, String, String)} 获取的实例是驻留的: 每个step重复构造的同一序列解析为同一实例,
+ * 命中缓存时不产生任何对象,去重、变化过滤及批处理代码可以直接比较引用,并使用预先计算的64位哈希。
+ * 缓存有容量上限,超出时整体清空,因此引用相等是快速路径,{@link #equals(Object)} 才是判断依据。
+ * @author agent@local
+ */
+public final class MetricKey {
+
+    /**
+     * 原始字符串缓存的分段数,须为2的幂
+     */
+    private static final int SEGMENTS = 16;
+    /**
+     * 每个分段缓存的最大条数
+     */
+    private static final int MAX_SEGMENT_SIZE = 8192;
+    /**
+     * 规范化实例及驻留字符串的最大条数
+     */
+    private static final int MAX_CANONICAL_SIZE = SEGMENTS * MAX_SEGMENT_SIZE;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Segment[] RAW_CACHE = new Segment[SEGMENTS];
+    private static final ConcurrentHashMap<MetricKey,MetricKey> CANONICAL = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String,String> STRINGS = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            RAW_CACHE[i] = new Segment();
+        }
+    }
+
+    private final String endpoint;
+    private final String metric;
+    private final String tags;
+    private final long hash;
+
+    private MetricKey(String endpoint, String metric, String tags) {
+        this.endpoint = endpoint;
+        this.metric = metric;
+        this.tags = tags;
+        long h = hash(FNV_OFFSET,endpoint);
+        h = (h ^ 0) * FNV_PRIME;
+        h = hash(h,metric);
+        h = (h ^ 0) * FNV_PRIME;
+        h = hash(h,tags);
+        //0 可作为调用方哈希表的空槽位标记
+        h = mix(h);
+        this.hash = h == 0 ? 1 : h;
+    }
+
+    /**
+     * 获取序列标识的驻留实例
+     * @param endpoint
+     * @param metric
+     * @param tags
+     * 逗号分隔的tag,可为null
+     * @return
+     */
+    public static MetricKey of(String endpoint, String metric, String tags){
+        long raw = mix(hash(hash(hash(FNV_OFFSET,endpoint) * FNV_PRIME,metric) * FNV_PRIME,tags));
+        Segment segment = RAW_CACHE[(int) (raw >>> 60)];
+        MetricKey key = segment.get(raw,endpoint,metric,tags);
+        if(key == null){
+            key = canonical(endpoint,metric,tags);
+            segment.put(raw,endpoint,metric,tags,key);
+        }
+        return key;
+    }
+
+    /**
+     * 获取报告的序列标识
+     * @param report
+     * @return
+     */
+    public static MetricKey of(FalconReportObject report){
+        return of(report.getEndpoint(),report.getMetric(),report.getTags());
+    }
+
+    private static MetricKey canonical(String endpoint, String metric, String tags){
+        MetricKey key = new MetricKey(intern(endpoint),intern(metric),intern(canonicalTags(tags)));
+        if(CANONICAL.size() >= MAX_CANONICAL_SIZE){
+            CANONICAL.clear();
+        }
+        MetricKey exist = CANONICAL.putIfAbsent(key,key);
+        return exist == null ? key : exist;
+    }
+
+    private static String intern(String s){
+        if(s == null){
+            return null;
+        }
+        if(STRINGS.size() >= MAX_CANONICAL_SIZE){
+            STRINGS.clear();
+        }
+        String exist = STRINGS.putIfAbsent(s,s);
+        return exist == null ? s : exist;
+    }
+
+    /**
+     * tags的规范形式: 去除引号及空白、去重并按字典序排列
+     * @param tags
+     * @return
+     */
+    static String canonicalTags(String tags){
+        if(tags == null || tags.isEmpty()){
+            return "";
+        }
+        String[] parts = tags.replace("\"","").split(",");
+        int size = 0;
+        for (String part : parts) {
+            part = part.trim();
+            if(!part.isEmpty()){
+                parts[size++] = part;
+            }
+        }
+        if(size == 0){
+            return "";
+        }
+        Arrays.sort(parts,0,size);
+        StringBuilder sb = new StringBuilder(tags.length());
+        for (int i = 0; i < size; i++) {
+            if(i > 0 && parts[i].equals(parts[i - 1])){
+                continue;
+            }
+            if(sb.length() > 0){
+                sb.append(',');
+            }
+            sb.append(parts[i]);
+        }
+        return sb.toString();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    /**
+     * 规范化的tags
+     * @return
+     */
+    public String getTags() {
+        return tags;
+    }
+
+    /**
+     * 64位哈希,不为0
+     * @return
+     */
+    public long hash64() {
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof MetricKey)){
+            return false;
+        }
+        MetricKey other = (MetricKey) o;
+        return hash == other.hash
+                && same(endpoint,other.endpoint)
+                && same(metric,other.metric)
+                && tags.equals(other.tags);
+    }
+
+    private static boolean same(String a, String b){
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + "/" + metric + "/" + tags;
+    }
+
+    /**
+     * FNV-1a 64位哈希
+     */
+    private static long hash(long h, String s){
+        if(s == null){
+            return h;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * 64位哈希的位混合(MurmurHash3 fmix64),使高位也均匀分布
+     */
+    private static long mix(long h){
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb3f97a98cf1bL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 原始(未规范化)字符串到驻留实例的缓存分段,开放寻址,命中时不产生对象
+     */
+    private static class Segment {
+        private long[] hashes = new long[256];
+        private String[] rawTags = new String[256];
+        private MetricKey[] keys = new MetricKey[256];
+        private int size;
+
+        synchronized MetricKey get(long raw, String endpoint, String metric, String tags){
+            int mask = hashes.length - 1;
+            int index = (int) (raw ^ (raw >>> 32)) & mask;
+            while (keys[index] != null){
+                if(hashes[index] == raw){
+                    MetricKey key = keys[index];
+                    if(same(key.endpoint,endpoint) && same(key.metric,metric) && same(rawTags[index],tags)){
+                        return key;
+                    }
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized void put(long raw, String endpoint, String metric, String tags, MetricKey key){
+            if(size >= MAX_SEGMENT_SIZE){
+                hashes = new long[256];
+                rawTags = new String[256];
+                keys = new MetricKey[256];
+                size = 0;
+            }else if(size + 1 > hashes.length * 3 / 4){
+                resize();
+            }
+            int mask = hashes.length - 1;
+            int index = (int) (raw ^ (raw >>> 32)) & mask;
+            while (keys[index] != null){
+                if(hashes[index] == raw && same(keys[index].endpoint,endpoint)
+                        && same(keys[index].metric,metric) && same(rawTags[index],tags)){
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            hashes[index] = raw;
+            rawTags[index] = tags;
+            keys[index] = key;
+            size++;
+        }
+
+        private void resize(){
+            long[] oldHashes = hashes;
+            String[] oldTags = rawTags;
+            MetricKey[] oldKeys = keys;
+            hashes = new long[oldHashes.length * 2];
+            rawTags = new String[oldHashes.length * 2];
+            keys = new MetricKey[oldHashes.length * 2];
+            int mask = hashes.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] == null){
+                    continue;
+                }
+                int index = (int) (oldHashes[i] ^ (oldHashes[i] >>> 32)) & mask;
+                while (keys[index] != null){
+                    index = (index + 1) & mask;
+                }
+                hashes[index] = oldHashes[i];
+                rawTags[index] = oldTags[i];
+                keys[index] = oldKeys[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:14 创建
+ */
+
+/**
+ * push请求体的压缩方式
+ * @author agent@local
+ */
+public enum PushCompression {
+    /**
+     * 不压缩
+     */
+    NONE("none"),
+    /**
+     * gzip压缩,Content-Encoding: gzip
+     */
+    GZIP("gzip"),
+    /**
+     * zlib格式的deflate压缩,Content-Encoding: deflate
+     */
+    DEFLATE("deflate");
+
+    /**
+     * 配置文件中的配置值,同时也是Content-Encoding的值
+     */
+    private String conf;
+
+    PushCompression(String conf) {
+        this.conf = conf;
+    }
+
+    public String getConf() {
+        return conf;
+    }
+
+    /**
+     * 根据配置值获取压缩方式
+     * @param conf
+     * @return
+     * null : 无匹配的压缩方式
+     */
+    public static PushCompression fromConf(String conf){
+        for (PushCompression compression : values()) {
+            if(compression.conf.equalsIgnoreCase(conf)){
+                return compression;
+            }
+        }
+        return null;
+    }
+}
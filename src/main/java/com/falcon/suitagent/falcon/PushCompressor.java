@@ -0,0 +1,116 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:14 创建
+ */
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * push请求体的压缩器
+ * Deflater及输出缓冲区在多次push间复用,避免每次push创建GZIPOutputStream及其本地内存。
+ * 非线程安全,每个发送线程持有一个实例,压缩结果在下次压缩前有效。
+ * @author agent@local
+ */
+class PushCompressor {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final boolean gzip;
+    /**
+     * push的数据重复度很高,最快的压缩级别已能得到较好的压缩率
+     */
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param compression
+     * {@link PushCompression#GZIP} 或 {@link PushCompression#DEFLATE}
+     */
+    PushCompressor(PushCompression compression) {
+        this.gzip = compression == PushCompression.GZIP;
+        //gzip 使用无zlib头的原始deflate数据,自行写入gzip头尾
+        this.deflater = new Deflater(Deflater.BEST_SPEED,gzip);
+    }
+
+    /**
+     * 压缩数据
+     * @param data
+     * @param length
+     * data的有效长度
+     * @return
+     */
+    PushCompressor compress(byte[] data,int length){
+        if(buffer.length > MAX_RETAINED_CAPACITY){
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        size = 0;
+        deflater.reset();
+        if(gzip){
+            write(GZIP_HEADER);
+            crc.reset();
+            crc.update(data,0,length);
+        }
+        deflater.setInput(data,0,length);
+        deflater.finish();
+        while (!deflater.finished()){
+            if(size == buffer.length){
+                buffer = Arrays.copyOf(buffer,buffer.length * 2);
+            }
+            size += deflater.deflate(buffer,size,buffer.length - size);
+        }
+        if(gzip){
+            writeIntLE((int) crc.getValue());
+            writeIntLE(length);
+        }
+        return this;
+    }
+
+    /**
+     * 压缩结果的字节数组,有效长度为 {@link #size()}
+     * @return
+     */
+    byte[] array(){
+        return buffer;
+    }
+
+    /**
+     * 压缩结果的字节长度
+     * @return
+     */
+    int size(){
+        return size;
+    }
+
+    private void write(byte[] bytes){
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes,0,buffer,size,bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeIntLE(int value){
+        ensureCapacity(4);
+        buffer[size++] = (byte) value;
+        buffer[size++] = (byte) (value >> 8);
+        buffer[size++] = (byte) (value >> 16);
+        buffer[size++] = (byte) (value >> 24);
+    }
+
+    private void ensureCapacity(int needed){
+        if(size + needed > buffer.length){
+            buffer = Arrays.copyOf(buffer,Math.max(buffer.length * 2,size + needed));
+        }
+    }
+}
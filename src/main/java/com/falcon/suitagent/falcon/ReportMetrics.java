@@ -4,18 +4,19 @@
  */
 package com.falcon.suitagent.falcon;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.falcon.suitagent.config.AgentConfiguration;
-import com.falcon.suitagent.util.DateUtil;
-import com.falcon.suitagent.util.HttpUtil;
+import com.falcon.suitagent.falcon.sink.*;
 import com.falcon.suitagent.util.StringUtils;
-import com.falcon.suitagent.vo.HttpResult;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
+import java.util.List;
 
 /*
  * 修订记录:
@@ -29,40 +30,93 @@ public class ReportMetrics {
 
     private static final Logger log = LoggerFactory.getLogger(ReportMetrics.class);
 
+    /**
+     * 各输出目标的队列及工作线程
+     */
+    private static final List<SinkWorker> sinkWorkers = new ArrayList<>();
+    private static RingBufferSink ringBufferSink;
+    private static HistorySink historySink;
+
+    static {
+        AgentConfiguration conf = AgentConfiguration.INSTANCE;
+        for (String name : conf.getSinks()) {
+            ReportSink sink;
+            int concurrency = 1;
+            switch (name){
+                case FalconSink.NAME:
+                    sink = new FalconSink();
+                    concurrency = conf.getPushConcurrency();
+                    break;
+                case FileSink.NAME:
+                    try {
+                        sink = new FileSink(new File(conf.getSinkFileDir()),conf.getSinkFileMaxSize() * 1024L * 1024L,conf.getSinkFileMaxFiles());
+                    } catch (Exception e) {
+                        log.error("输出目标 {} 初始化失败",name,e);
+                        continue;
+                    }
+                    break;
+                case RingBufferSink.NAME:
+                    ringBufferSink = new RingBufferSink(conf.getSinkRingCapacity());
+                    sink = ringBufferSink;
+                    break;
+                case HistorySink.NAME:
+                    historySink = new HistorySink(conf.getSinkHistoryPoints(),conf.getSinkHistoryMemory() * 1024L * 1024L,conf.getSinkHistoryIdle());
+                    sink = historySink;
+                    break;
+                default:
+                    log.error("未知的输出目标:{}",name);
+                    continue;
+            }
+            sinkWorkers.add(new SinkWorker(sink,conf.getSinkQueueCapacity(),concurrency));
+        }
+    }
+
+    /**
+     * GAUGE报告的变化过滤,未启用时为null
+     */
+    private static final ChangeOnlyFilter changeOnlyFilter;
+
+    static {
+        if(AgentConfiguration.INSTANCE.isPushSuppressEnable()){
+            changeOnlyFilter = new ChangeOnlyFilter(AgentConfiguration.INSTANCE.getPushSuppressHeartbeat());
+            AgentMetrics.gauge("push.suppress.ratio",null,changeOnlyFilter::suppressionRatio);
+        }else{
+            changeOnlyFilter = null;
+        }
+    }
+
+    /**
+     * 跨插件的合并窗口,未启用时为null
+     */
+    private static final StepCoalescer coalescer = AgentConfiguration.INSTANCE.getPushCoalesceWindow() > 0 ?
+            new StepCoalescer(AgentConfiguration.INSTANCE.getPushCoalesceWindow(),
+                    AgentConfiguration.INSTANCE.getPushCoalesceMaxSize(),
+                    AgentConfiguration.INSTANCE.getPushQueueCapacity(),
+                    AgentConfiguration.INSTANCE.isSchedulerSpread(),
+                    ReportMetrics::dispatch) : null;
+
+    /**
+     * 报告先进入此队列批量汇集,经合并窗口后再分发到各输出目标
+     */
+    private static final ReportQueue reportQueue = new ReportQueue("falconPush",
+            AgentConfiguration.INSTANCE.getPushQueueCapacity(),
+            AgentConfiguration.INSTANCE.getPushBatchSize(),
+            AgentConfiguration.INSTANCE.getPushBatchInterval(),
+            AgentConfiguration.INSTANCE.getPushBlockTimeout(),
+            AgentConfiguration.INSTANCE.getPushBackpressure(),
+            1,
+            ReportMetrics::coalesce);
+
     /**
      * 推送数据到falcon
+     * 报告对象进入push队列,由push线程异步批量发送
      * @param falconReportObjectList
      */
     public static void push(Collection<FalconReportObject> falconReportObjectList){
         if(falconReportObjectList != null && !falconReportObjectList.isEmpty()){
-            JSONArray jsonArray = new JSONArray();
-            long timestamp = 0;
             for (FalconReportObject falconReportObject : falconReportObjectList) {
-                if(!isValidTag(falconReportObject)){
-                    log.error("报告对象的tag为空,此metrics将不允上报:{}",falconReportObject.toString());
-                    continue;
-                }
-                timestamp = falconReportObject.getTimestamp();
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("endpoint",falconReportObject.getEndpoint());
-                jsonObject.put("metric",falconReportObject.getMetric());
-                jsonObject.put("timestamp",falconReportObject.getTimestamp());
-                jsonObject.put("step",falconReportObject.getStep());
-                jsonObject.put("value",falconReportObject.getValue());
-                jsonObject.put("counterType",falconReportObject.getCounterType());
-                jsonObject.put("tags",falconReportObject.getTags() == null ? "" : falconReportObject.getTags());
-                jsonArray.put(jsonObject);
-            }
-            String time = DateUtil.getFormatDateTime(new Date(timestamp * 1000));
-            log.debug("报告Falcon({}) : [{}]",time,jsonArray.toString());
-            HttpResult result;
-            try {
-                result = HttpUtil.postJSON(AgentConfiguration.INSTANCE.getAgentPushUrl(),jsonArray.toString());
-            } catch (Exception e) {
-                log.error("metrics push异常,检查Falcon组件是否运行正常",e);
-                return;
+                offer(falconReportObject);
             }
-            log.info("push回执: {}" , result);
         }else {
             log.info("push对象为null");
         }
@@ -70,33 +124,119 @@ public class ReportMetrics {
 
     /**
      * 推送数据到falcon
+     * 报告对象进入push队列,由push线程异步批量发送
      * @param falconReportObject
      */
     public static void push(FalconReportObject falconReportObject){
+        offer(falconReportObject);
+    }
+
+    private static void offer(FalconReportObject falconReportObject){
         if(!isValidTag(falconReportObject)){
-            log.error("报告对象的tag为空,此metrics将不允上报:{}",falconReportObject.toString());
+            log.error("报告对象的tag为空,此metrics将不允上报:{}",falconReportObject);
             return;
         }
-
-        JSONArray jsonArray = new JSONArray();
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("endpoint",falconReportObject.getEndpoint());
-        jsonObject.put("metric",falconReportObject.getMetric());
-        jsonObject.put("timestamp",falconReportObject.getTimestamp());
-        jsonObject.put("step",falconReportObject.getStep());
-        jsonObject.put("value",falconReportObject.getValue());
-        jsonObject.put("counterType",falconReportObject.getCounterType());
-        jsonObject.put("tags",falconReportObject.getTags() == null ? "" : falconReportObject.getTags());
-        jsonArray.put(jsonObject);
-        log.debug("报告Falcon : [{}]",jsonArray.toString());
-        HttpResult result;
-        try {
-            result = HttpUtil.postJSON(AgentConfiguration.INSTANCE.getAgentPushUrl(),jsonArray.toString());
-        } catch (Exception e) {
-            log.error("metrics push异常,检查Falcon组件是否运行正常",e);
+        if(changeOnlyFilter != null && !changeOnlyFilter.accept(falconReportObject)){
             return;
         }
-        log.info("push回执: {}" , result);
+        if(!reportQueue.offer(falconReportObject)){
+            log.warn("push队列已满({}),丢弃报告:{}",AgentConfiguration.INSTANCE.getPushBackpressure().getConf(),falconReportObject);
+        }
+    }
+
+    private static boolean coalesce(List<FalconReportObject> falconReportObjectList){
+        return coalescer != null ? coalescer.add(falconReportObjectList) : dispatch(falconReportObjectList);
+    }
+
+    /**
+     * 分发一批报告到各输出目标
+     * 同一批报告在各输出目标间共享,只序列化一次;分发不阻塞,慢的输出目标只会丢弃自己队列中的数据
+     * @param falconReportObjectList
+     * @return
+     * true : 至少一个输出目标接收了该批报告
+     */
+    static boolean dispatch(List<FalconReportObject> falconReportObjectList){
+        ReportBatch batch = new ReportBatch(falconReportObjectList);
+        boolean accepted = false;
+        for (SinkWorker sinkWorker : sinkWorkers) {
+            accepted |= sinkWorker.offer(batch);
+        }
+        return accepted;
+    }
+
+    /**
+     * ring输出目标中最近的报告
+     * @param limit
+     * @return
+     */
+    public static List<FalconReportObject> recent(int limit){
+        if(ringBufferSink == null){
+            return Collections.emptyList();
+        }
+        return ringBufferSink.recent(limit);
+    }
+
+    /**
+     * 查询history输出目标中时间范围内的数据
+     * @param metric
+     * 指标名称,以 * 结尾时按前缀匹配
+     * @param endpoint
+     * @param tags
+     * 序列须包含的tag(k1=v1,k2=v2)
+     * @param start
+     * 起始时间戳(秒)
+     * @param end
+     * 结束时间戳(秒)
+     * @param limit
+     * 最多返回的序列数
+     * @return
+     * 未启用history输出目标时返回null
+     */
+    public static JSONArray query(String metric, String endpoint, String tags, long start, long end, int limit){
+        if(historySink == null){
+            return null;
+        }
+        return historySink.query(metric,endpoint,tags,start,end,limit);
+    }
+
+    /**
+     * push队列及各输出目标的统计信息
+     * sent、failed为各输出目标实际发送成功、失败的报告数之和,每个输出目标分别计数
+     * @return
+     */
+    public static JSONObject status(){
+        JSONObject status = reportQueue.status();
+        if(coalescer != null){
+            status.put("coalesce",coalescer.status());
+        }
+        if(changeOnlyFilter != null){
+            status.put("suppress",changeOnlyFilter.status());
+        }
+        JSONObject sinks = new JSONObject(true);
+        long sent = 0;
+        long failed = 0;
+        for (SinkWorker sinkWorker : sinkWorkers) {
+            sinks.put(sinkWorker.getSink().getName(),sinkWorker.status());
+            sent += sinkWorker.getSent();
+            failed += sinkWorker.getFailed();
+        }
+        status.put("sent",sent);
+        status.put("failed",failed);
+        status.put("sinks",sinks);
+        return status;
+    }
+
+    /**
+     * 关闭push队列,发送完剩余的报告
+     */
+    public static void shutdown(){
+        reportQueue.shutdown(10000);
+        if(coalescer != null){
+            coalescer.shutdown();
+        }
+        for (SinkWorker sinkWorker : sinkWorkers) {
+            sinkWorker.shutdown(10000);
+        }
     }
 
     /**
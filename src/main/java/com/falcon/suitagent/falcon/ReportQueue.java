@@ -0,0 +1,310 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:07 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步的push队列
+ * 采集线程只负责将报告对象入队,由发送线程按数量或时间批量取出并发送
+ * @author agent@local
+ */
+@Slf4j
+public class ReportQueue {
+
+    /**
+     * 批量发送接口
+     */
+    public interface BatchSender {
+        /**
+         * 发送一批报告
+         * @param batch
+         * @return
+         * true : 发送成功
+         */
+        boolean send(List<FalconReportObject> batch);
+    }
+
+    private final String name;
+    private final int batchSize;
+    private final long batchInterval;
+    private final long blockTimeout;
+    private final BackpressurePolicy policy;
+    private final BatchSender sender;
+
+    /**
+     * 高优先级(可用性报告)队列,发送时优先取出
+     */
+    private final BlockingQueue<FalconReportObject> priorityQueue;
+    /**
+     * 普通报告队列
+     */
+    private final BlockingQueue<FalconReportObject> queue;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    /**
+     * 已交给 {@link BatchSender} 的报告数,不代表输出目标已发送成功
+     */
+    private final AtomicLong dispatched = new AtomicLong();
+    /**
+     * {@link BatchSender} 未接收的报告数
+     */
+    private final AtomicLong undispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private volatile boolean running = true;
+    private final Thread[] senderThreads;
+
+    /**
+     * 异步的push队列
+     * @param name
+     * 队列名称,用于发送线程命名
+     * @param capacity
+     * 队列容量
+     * @param batchSize
+     * 每批最大的报告数
+     * @param batchInterval
+     * 每批最长的等待时间(毫秒)
+     * @param blockTimeout
+     * {@link BackpressurePolicy#BLOCK} 策略下入队的最长等待时间(毫秒)
+     * @param policy
+     * 队列满时的处理策略
+     * @param concurrency
+     * 发送线程数,即同时进行中的发送请求数
+     * @param sender
+     * 批量发送的实现,需线程安全
+     */
+    public ReportQueue(String name, int capacity, int batchSize, long batchInterval, long blockTimeout, BackpressurePolicy policy, int concurrency, BatchSender sender) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+        this.blockTimeout = blockTimeout;
+        this.policy = policy;
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.priorityQueue = new ArrayBlockingQueue<>(Math.max(capacity / 10, 64));
+
+        senderThreads = new Thread[Math.max(concurrency,1)];
+        for (int i = 0; i < senderThreads.length; i++) {
+            senderThreads[i] = new Thread(this::sendLoop);
+            senderThreads[i].setName(name + "-sender-" + i);
+            senderThreads[i].setDaemon(true);
+            senderThreads[i].start();
+        }
+    }
+
+    /**
+     * 报告入队
+     * @param report
+     * @return
+     * false : 该报告被丢弃
+     */
+    public boolean offer(FalconReportObject report){
+        if(report == null){
+            return false;
+        }
+        boolean success = isHighPriority(report) ? offerPriority(report) : offerNormal(report);
+        if(success){
+            enqueued.incrementAndGet();
+        }else{
+            dropped.incrementAndGet();
+        }
+        return success;
+    }
+
+    private boolean offerNormal(FalconReportObject report){
+        if(queue.offer(report)){
+            return true;
+        }
+        switch (policy){
+            case BLOCK:
+                try {
+                    return queue.offer(report,blockTimeout,TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_OLDEST:
+                return evictAndOffer(queue,report);
+            default:
+                //普通报告为最低优先级,直接丢弃新报告
+                return false;
+        }
+    }
+
+    private boolean offerPriority(FalconReportObject report){
+        if(priorityQueue.offer(report)){
+            return true;
+        }
+        switch (policy){
+            case BLOCK:
+                try {
+                    return priorityQueue.offer(report,blockTimeout,TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_LOWEST_PRIORITY:
+                //牺牲一个普通报告,将可用性报告放入普通队列
+                if(evictAndOffer(queue,report)){
+                    return true;
+                }
+                return evictAndOffer(priorityQueue,report);
+            default:
+                return evictAndOffer(priorityQueue,report);
+        }
+    }
+
+    /**
+     * 丢弃队列中最旧的报告,并将报告入队
+     * @return
+     */
+    private boolean evictAndOffer(BlockingQueue<FalconReportObject> target,FalconReportObject report){
+        for (int i = 0; i < 3; i++) {
+            if(target.poll() != null){
+                dropped.incrementAndGet();
+            }
+            if(target.offer(report)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 可用性报告为高优先级报告
+     * @param report
+     * @return
+     */
+    private static boolean isHighPriority(FalconReportObject report){
+        return "availability".equals(report.getMetric());
+    }
+
+    private void sendLoop(){
+        List<FalconReportObject> batch = new ArrayList<>(batchSize);
+        while (running || !isEmpty()){
+            try {
+                priorityQueue.drainTo(batch,batchSize);
+                long deadline = System.currentTimeMillis() + batchInterval;
+                while (batch.size() < batchSize){
+                    queue.drainTo(batch,batchSize - batch.size());
+                    priorityQueue.drainTo(batch,batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if(batch.size() >= batchSize || remaining <= 0 || !running){
+                        break;
+                    }
+                    FalconReportObject report = queue.poll(remaining,TimeUnit.MILLISECONDS);
+                    if(report != null){
+                        batch.add(report);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+                //关闭时中断,发送剩余的报告
+            }
+            if(!batch.isEmpty()){
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void flush(List<FalconReportObject> batch){
+        batches.incrementAndGet();
+        boolean success;
+        try {
+            success = sender.send(batch);
+        } catch (Exception e) {
+            log.error("{} 批量发送异常",name,e);
+            success = false;
+        }
+        if(success){
+            dispatched.addAndGet(batch.size());
+        }else{
+            undispatched.addAndGet(batch.size());
+        }
+    }
+
+    private boolean isEmpty(){
+        return queue.isEmpty() && priorityQueue.isEmpty();
+    }
+
+    /**
+     * 当前队列中待发送的报告数
+     * @return
+     */
+    public int size(){
+        return queue.size() + priorityQueue.size();
+    }
+
+    /**
+     * 关闭队列,发送完剩余的报告
+     * @param timeout
+     * 最长等待时间(毫秒)
+     */
+    public void shutdown(long timeout){
+        running = false;
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Thread senderThread : senderThreads) {
+            senderThread.interrupt();
+        }
+        try {
+            for (Thread senderThread : senderThreads) {
+                senderThread.join(Math.max(deadline - System.currentTimeMillis(),1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(!isEmpty()){
+            log.warn("{} 关闭时仍有 {} 个报告未发送",name,size());
+        }
+    }
+
+    /**
+     * 队列的统计信息
+     * 实际的发送结果由各输出目标统计
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject();
+        status.put("policy",policy.getConf());
+        status.put("concurrency",senderThreads.length);
+        status.put("queued",size());
+        status.put("enqueued",enqueued.get());
+        status.put("dispatched",dispatched.get());
+        status.put("undispatched",undispatched.get());
+        status.put("dropped",dropped.get());
+        status.put("batches",batches.get());
+        return status;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    public long getUndispatched() {
+        return undispatched.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
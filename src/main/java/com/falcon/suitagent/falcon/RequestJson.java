@@ -4,7 +4,6 @@
  */
 package com.falcon.suitagent.falcon;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,14 +66,7 @@ public class RequestJson {
             log.warn("转换对象不能为空");
             return null;
         }
-        JSONArray jsonArray = new JSONArray();
-        for (FalconReportObject requestObject : requestObjectList) {
-            JSONObject jsonObject = translatorByRequestObject(requestObject);
-            if(jsonObject != null){
-                jsonArray.put(jsonObject);
-            }
-        }
-        return jsonArray.toString();
+        return FalconJsonEncoder.get().encode(requestObjectList).toString();
     }
 
 }
@@ -0,0 +1,468 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:09 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * push失败数据的磁盘溢出队列
+ * 以分段的内存映射文件保存push失败的批次,每条记录带CRC校验,超出容量上限时淘汰最旧的分段。
+ * 推送地址恢复正常后,由回放线程按写入(时间)顺序限速回放。
+ *
+ * 记录格式: [int 长度][int 报告数][long 写入时间][long crc][payload]
+ * 已回放或被接收方拒绝的记录将长度置为负数,Agent重启后不会重复回放
+ * @author agent@local
+ */
+@Slf4j
+public class SpillQueue {
+
+    /**
+     * 回放接口
+     */
+    public interface Replayer {
+        /**
+         * 回放一条记录
+         * @param payload
+         * @param count
+         * @return
+         * 回放结果
+         */
+        ReplayResult replay(byte[] payload, int count);
+    }
+
+    /**
+     * 回放结果
+     */
+    public enum ReplayResult {
+        SUCCESS,
+        /**
+         * 推送地址不可用,稍后重试该记录
+         */
+        RETRY,
+        /**
+         * 接收方拒绝了该记录,重试也不会成功,丢弃该记录
+         */
+        REJECTED
+    }
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /**
+     * 推送不可用时的探测间隔(毫秒)
+     */
+    private static final long PROBE_INTERVAL = 30000;
+
+    private final File dir;
+    private final long maxBytes;
+    private final int segmentBytes;
+
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private long nextSegmentId = 0;
+    private long totalBytes = 0;
+
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    private volatile boolean healthy = true;
+    private volatile boolean running = true;
+    private Thread replayThread;
+
+    /**
+     * 一个分段文件
+     */
+    private static class Segment {
+        long id;
+        File file;
+        MappedByteBuffer buffer;
+        int writePos;
+        int readPos;
+        int pending;
+
+        int capacity(){
+            return buffer.capacity();
+        }
+    }
+
+    /**
+     * 一条待回放的记录
+     */
+    private static class Record {
+        Segment segment;
+        int position;
+        int count;
+        byte[] payload;
+    }
+
+    /**
+     * push失败数据的磁盘溢出队列
+     * @param dir
+     * 分段文件保存目录
+     * @param maxBytes
+     * 磁盘占用上限(字节)
+     * @param segmentBytes
+     * 每个分段文件的大小(字节)
+     * @throws IOException
+     */
+    public SpillQueue(File dir, long maxBytes, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        if(!dir.exists() && !dir.mkdirs()){
+            throw new IOException("目录创建失败:" + dir.getAbsolutePath());
+        }
+        recover();
+    }
+
+    /**
+     * 加载目录中已有的分段文件
+     * @throws IOException
+     */
+    private synchronized void recover() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if(files == null){
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            long id;
+            try {
+                id = Long.parseLong(file.getName().substring(SEGMENT_PREFIX.length(),file.getName().length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的spill文件:{}",file.getAbsolutePath());
+                continue;
+            }
+            Segment segment = map(id,file,(int) file.length());
+            scan(segment);
+            nextSegmentId = Math.max(nextSegmentId,id + 1);
+            if(segment.pending == 0){
+                delete(segment);
+            }else{
+                segments.add(segment);
+                totalBytes += segment.capacity();
+            }
+        }
+        if(!segments.isEmpty()){
+            log.info("加载spill文件 {} 个,待回放记录 {} 条",segments.size(),pendingRecords());
+        }
+    }
+
+    /**
+     * 扫描分段,定位读写位置,遇到CRC校验失败的记录时截断
+     * @param segment
+     */
+    private void scan(Segment segment){
+        MappedByteBuffer buffer = segment.buffer;
+        int pos = 0;
+        segment.readPos = -1;
+        while (pos + HEADER_SIZE <= buffer.capacity()){
+            int length = buffer.getInt(pos);
+            if(length == 0){
+                break;
+            }
+            int size = Math.abs(length);
+            if(pos + HEADER_SIZE + size > buffer.capacity()){
+                log.warn("spill文件 {} 在位置 {} 的记录不完整,已截断",segment.file.getName(),pos);
+                break;
+            }
+            if(length > 0){
+                if(crc(buffer,pos,size) != buffer.getLong(pos + 16)){
+                    log.warn("spill文件 {} 在位置 {} 的记录CRC校验失败,已截断",segment.file.getName(),pos);
+                    break;
+                }
+                if(segment.readPos < 0){
+                    segment.readPos = pos;
+                }
+                segment.pending++;
+            }
+            pos += HEADER_SIZE + size;
+        }
+        segment.writePos = pos;
+        if(segment.readPos < 0){
+            segment.readPos = pos;
+        }
+    }
+
+    private static long crc(MappedByteBuffer buffer,int pos,int size){
+        CRC32 crc32 = new CRC32();
+        crc32.update(readPayload(buffer,pos,size));
+        return crc32.getValue();
+    }
+
+    private static byte[] readPayload(MappedByteBuffer buffer,int pos,int size){
+        byte[] payload = new byte[size];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(pos + HEADER_SIZE);
+        slice.get(payload);
+        return payload;
+    }
+
+    private Segment map(long id,File file,int size) throws IOException {
+        Segment segment = new Segment();
+        segment.id = id;
+        segment.file = file;
+        try (RandomAccessFile raf = new RandomAccessFile(file,"rw");
+             FileChannel channel = raf.getChannel()){
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE,0,size);
+        }
+        return segment;
+    }
+
+    private Segment newSegment(int size) throws IOException {
+        //超出容量上限,淘汰最旧的分段
+        while (!segments.isEmpty() && totalBytes + size > maxBytes){
+            Segment oldest = segments.removeFirst();
+            totalBytes -= oldest.capacity();
+            evicted.addAndGet(oldest.pending);
+            log.warn("spill数据超出容量上限 {} 字节,淘汰最旧的分段 {} ,丢弃 {} 条记录",maxBytes,oldest.file.getName(),oldest.pending);
+            delete(oldest);
+        }
+        long id = nextSegmentId++;
+        File file = new File(dir,String.format("%s%020d%s",SEGMENT_PREFIX,id,SEGMENT_SUFFIX));
+        Segment segment = map(id,file,size);
+        segments.add(segment);
+        totalBytes += size;
+        return segment;
+    }
+
+    private void delete(Segment segment){
+        segment.buffer = null;
+        if(!segment.file.delete()){
+            log.warn("spill文件删除失败:{}",segment.file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 写入一批push失败的数据
+     * @param payload
+     * @param count
+     * 该批数据包含的报告数
+     * @return
+     * false : 写入失败
+     */
+    public boolean append(byte[] payload, int count){
+        return append(payload,payload.length,count);
+    }
+
+    /**
+     * 写入一批push失败的数据
+     * @param payload
+     * @param length
+     * payload的有效长度
+     * @param count
+     * 该批数据包含的报告数
+     * @return
+     * false : 写入失败
+     */
+    public synchronized boolean append(byte[] payload, int length, int count){
+        int recordSize = HEADER_SIZE + length;
+        try {
+            Segment segment = segments.peekLast();
+            if(segment == null || segment.writePos + recordSize > segment.capacity()){
+                if(segment != null){
+                    segment.buffer.force();
+                }
+                segment = newSegment(Math.max(segmentBytes,recordSize));
+            }
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload,0,length);
+            MappedByteBuffer buffer = segment.buffer;
+            int pos = segment.writePos;
+            buffer.position(pos + 4);
+            buffer.putInt(count);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.putLong(crc32.getValue());
+            buffer.put(payload,0,length);
+            //最后写入长度,保证记录的完整性
+            buffer.putInt(pos,length);
+            segment.writePos = pos + recordSize;
+            segment.pending++;
+            spilled.addAndGet(count);
+            notifyAll();
+            return true;
+        } catch (IOException e) {
+            log.error("spill数据写入失败",e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取最旧的一条待回放记录
+     * @return
+     */
+    private synchronized Record peek(){
+        for (Segment segment : segments) {
+            if(segment.pending > 0){
+                MappedByteBuffer buffer = segment.buffer;
+                int pos = segment.readPos;
+                while (pos < segment.writePos){
+                    int length = buffer.getInt(pos);
+                    if(length > 0){
+                        Record record = new Record();
+                        record.segment = segment;
+                        record.position = pos;
+                        record.count = buffer.getInt(pos + 4);
+                        record.payload = readPayload(buffer,pos,length);
+                        segment.readPos = pos;
+                        return record;
+                    }
+                    pos += HEADER_SIZE + Math.abs(length);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 标记记录已回放或已丢弃
+     * @param record
+     * @param success
+     * false : 记录被接收方拒绝
+     */
+    private synchronized void commit(Record record, boolean success){
+        Segment segment = record.segment;
+        if(segment.buffer == null){
+            //回放期间该分段已被淘汰
+            return;
+        }
+        segment.buffer.putInt(record.position,-record.payload.length);
+        segment.readPos = record.position + HEADER_SIZE + record.payload.length;
+        segment.pending--;
+        if(success){
+            replayed.addAndGet(record.count);
+        }else{
+            rejected.addAndGet(record.count);
+        }
+        if(segment.pending == 0 && segment != segments.peekLast()){
+            segments.remove(segment);
+            totalBytes -= segment.capacity();
+            delete(segment);
+        }
+    }
+
+    private synchronized int pendingRecords(){
+        int pending = 0;
+        for (Segment segment : segments) {
+            pending += segment.pending;
+        }
+        return pending;
+    }
+
+    /**
+     * 设置推送地址的健康状态
+     * 推送成功时,回放线程开始回放
+     * @param healthy
+     */
+    public void setHealthy(boolean healthy){
+        this.healthy = healthy;
+    }
+
+    /**
+     * 启动回放线程
+     * @param replayer
+     * @param rate
+     * 每秒最多回放的报告数
+     */
+    public synchronized void startReplay(Replayer replayer, int rate){
+        if(replayThread != null){
+            return;
+        }
+        replayThread = new Thread(() -> replayLoop(replayer,rate));
+        replayThread.setName("spillReplayThread");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    private void replayLoop(Replayer replayer, int rate){
+        long lastProbe = 0;
+        while (running){
+            try {
+                Record record = peek();
+                if(record == null){
+                    synchronized (this){
+                        wait(5000);
+                    }
+                    continue;
+                }
+                if(!healthy && System.currentTimeMillis() - lastProbe < PROBE_INTERVAL){
+                    Thread.sleep(1000);
+                    continue;
+                }
+                ReplayResult result;
+                try {
+                    result = replayer.replay(record.payload,record.count);
+                } catch (Exception e) {
+                    log.error("spill数据回放异常",e);
+                    result = ReplayResult.RETRY;
+                }
+                if(result != ReplayResult.RETRY){
+                    if(result == ReplayResult.REJECTED){
+                        //接收方不接受的记录不再重试,避免阻塞之后的记录
+                        log.warn("spill记录({}条报告)被接收方拒绝,已丢弃",record.count);
+                    }
+                    commit(record,result == ReplayResult.SUCCESS);
+                    healthy = true;
+                    //限速回放,避免恢复时冲击transfer
+                    Thread.sleep(Math.max(1,record.count * 1000L / rate));
+                }else{
+                    healthy = false;
+                    lastProbe = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 关闭回放线程并刷新数据到磁盘
+     */
+    public synchronized void shutdown(){
+        running = false;
+        if(replayThread != null){
+            replayThread.interrupt();
+        }
+        for (Segment segment : segments) {
+            if(segment.buffer != null){
+                segment.buffer.force();
+            }
+        }
+    }
+
+    /**
+     * 溢出队列的统计信息
+     * @return
+     */
+    public synchronized JSONObject status(){
+        JSONObject status = new JSONObject();
+        status.put("healthy",healthy);
+        status.put("segments",segments.size());
+        status.put("bytes",totalBytes);
+        status.put("pendingRecords",pendingRecords());
+        status.put("spilled",spilled.get());
+        status.put("replayed",replayed.get());
+        status.put("rejected",rejected.get());
+        status.put("evictedRecords",evicted.get());
+        return status;
+    }
+}
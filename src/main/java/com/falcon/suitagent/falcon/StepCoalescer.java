@@ -0,0 +1,250 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:21 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨插件的按周期对齐的合并窗口
+ * 各插件的采集任务独立触发、独立上报,即使它们的step相同。
+ * 此处将step相同且时间戳落在同一周期内的报告汇集到同一个桶,桶在首个报告到达后等待一个短的窗口时间,
+ * 或达到大小上限后,作为一个合并的批次输出,从而将同一周期内多个插件的上报合并为少量的请求。
+ * 调度器为任务分配了相位偏移(agent.scheduler.spread)时,同一周期内各插件的上报分散在整个周期内,
+ * 此时桶一直等待到周期结束后再加一个窗口时间,以合并整个周期的上报。
+ * 所有桶中待输出的报告数超过上限时,最先到期的桶被提前输出
+ * @author agent@local
+ */
+@Slf4j
+public class StepCoalescer {
+
+    private final long window;
+    private final int maxSize;
+    private final int maxPending;
+    private final boolean alignToStep;
+    private final ReportQueue.BatchSender downstream;
+
+    private final Map<BucketKey,Bucket> buckets = new HashMap<>();
+    /**
+     * 所有桶中的报告数,由buckets的锁保护
+     */
+    private int pending;
+    private final Thread flushThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong batchesIn = new AtomicLong();
+    private final AtomicLong batchesOut = new AtomicLong();
+    private final AtomicLong reportsOut = new AtomicLong();
+    private final AtomicLong forcedFlushes = new AtomicLong();
+
+    /**
+     * @param window
+     * 桶从首个报告到达后的等待时间(毫秒)
+     * @param maxSize
+     * 每个合并批次的最大报告数
+     * @param maxPending
+     * 所有桶中待输出的最大报告数
+     * @param alignToStep
+     * 是否等待到周期结束,任务的执行分散在整个周期内时使用
+     * @param downstream
+     * 合并批次的输出
+     */
+    public StepCoalescer(long window, int maxSize, int maxPending, boolean alignToStep, ReportQueue.BatchSender downstream) {
+        this.window = window;
+        this.maxSize = maxSize;
+        this.maxPending = Math.max(maxPending,maxSize);
+        this.alignToStep = alignToStep;
+        this.downstream = downstream;
+        flushThread = new Thread(this::flushLoop);
+        flushThread.setName("stepCoalescer");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    private static final class BucketKey {
+        private final int step;
+        private final long slot;
+
+        BucketKey(int step, long slot) {
+            this.step = step;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BucketKey)) return false;
+            BucketKey that = (BucketKey) o;
+            return step == that.step && slot == that.slot;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * step + (int) (slot ^ (slot >>> 32));
+        }
+    }
+
+    private static final class Bucket {
+        private final long deadline;
+        private final List<FalconReportObject> reports = new ArrayList<>();
+
+        Bucket(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * 报告进入合并窗口
+     * @param reports
+     * @return
+     * 始终为true,报告在窗口到期后输出
+     */
+    public boolean add(List<FalconReportObject> reports){
+        batchesIn.incrementAndGet();
+        List<List<FalconReportObject>> ready = null;
+        synchronized (buckets){
+            long now = System.currentTimeMillis();
+            for (FalconReportObject report : reports) {
+                int step = Math.max(report.getStep(),1);
+                BucketKey key = new BucketKey(step,report.getTimestamp() / step);
+                Bucket bucket = buckets.get(key);
+                if(bucket == null){
+                    bucket = new Bucket(deadline(key,now));
+                    buckets.put(key,bucket);
+                }
+                bucket.reports.add(report);
+                pending++;
+                if(bucket.reports.size() >= maxSize){
+                    buckets.remove(key);
+                    pending -= bucket.reports.size();
+                    if(ready == null){
+                        ready = new ArrayList<>();
+                    }
+                    ready.add(bucket.reports);
+                }
+            }
+            //超过上限时提前输出最先到期的桶
+            while (pending > maxPending && !buckets.isEmpty()){
+                Map.Entry<BucketKey,Bucket> earliest = null;
+                for (Map.Entry<BucketKey, Bucket> entry : buckets.entrySet()) {
+                    if(earliest == null || entry.getValue().deadline < earliest.getValue().deadline){
+                        earliest = entry;
+                    }
+                }
+                buckets.remove(earliest.getKey());
+                pending -= earliest.getValue().reports.size();
+                forcedFlushes.incrementAndGet();
+                if(ready == null){
+                    ready = new ArrayList<>();
+                }
+                ready.add(earliest.getValue().reports);
+            }
+        }
+        if(ready != null){
+            ready.forEach(this::emit);
+        }
+        return true;
+    }
+
+    /**
+     * 桶的到期时间
+     * @param key
+     * @param now
+     * @return
+     */
+    private long deadline(BucketKey key, long now){
+        if(alignToStep){
+            long slotEnd = (key.slot + 1) * key.step * 1000L;
+            return Math.max(slotEnd,now) + window;
+        }
+        return now + window;
+    }
+
+    private void flushLoop(){
+        long interval = Math.max(Math.min(window / 4,500),10);
+        while (running){
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            flush(false);
+        }
+    }
+
+    /**
+     * 输出到期的桶
+     * @param all
+     * 是否输出所有的桶
+     */
+    private void flush(boolean all){
+        List<List<FalconReportObject>> ready = new ArrayList<>();
+        synchronized (buckets){
+            long now = System.currentTimeMillis();
+            Iterator<Bucket> iterator = buckets.values().iterator();
+            while (iterator.hasNext()){
+                Bucket bucket = iterator.next();
+                if(all || bucket.deadline <= now){
+                    ready.add(bucket.reports);
+                    pending -= bucket.reports.size();
+                    iterator.remove();
+                }
+            }
+        }
+        ready.forEach(this::emit);
+    }
+
+    private void emit(List<FalconReportObject> reports){
+        batchesOut.incrementAndGet();
+        reportsOut.addAndGet(reports.size());
+        try {
+            downstream.send(reports);
+        } catch (Exception e) {
+            log.error("合并批次输出异常",e);
+        }
+    }
+
+    /**
+     * 关闭合并窗口,输出所有的桶
+     */
+    public void shutdown(){
+        running = false;
+        flushThread.interrupt();
+        flush(true);
+    }
+
+    /**
+     * 统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("window",window);
+        status.put("maxSize",maxSize);
+        status.put("maxPending",maxPending);
+        status.put("alignToStep",alignToStep);
+        int pendingBuckets;
+        int pendingReports;
+        synchronized (buckets){
+            pendingBuckets = buckets.size();
+            pendingReports = pending;
+        }
+        status.put("pendingBuckets",pendingBuckets);
+        status.put("pendingReports",pendingReports);
+        status.put("batchesIn",batchesIn.get());
+        status.put("batchesOut",batchesOut.get());
+        status.put("forcedFlushes",forcedFlushes.get());
+        long out = batchesOut.get();
+        status.put("avgBatchSize",out == 0 ? 0 : reportsOut.get() / out);
+        return status;
+    }
+}
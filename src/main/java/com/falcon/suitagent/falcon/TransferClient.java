@@ -0,0 +1,280 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:16 创建
+ */
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-Falcon transfer 的JSON-RPC客户端
+ * 直接通过持久的TCP连接调用transfer的 Transfer.Update 方法上报数据,不再经由本地falcon-agent转发。
+ * 多个transfer地址之间轮询,某个地址连接或调用失败时自动切换到下一个地址。
+ * @author agent@local
+ */
+@Slf4j
+public class TransferClient {
+
+    private static final byte[] REQUEST_PREFIX = "{\"method\":\"Transfer.Update\",\"params\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REQUEST_ID = "],\"id\":".getBytes(StandardCharsets.UTF_8);
+    /**
+     * 调用失败的地址在此时间(毫秒)内不参与轮询,除非所有地址都不可用
+     */
+    private static final long DOWN_TIME = 10000;
+
+    private final List<TransferAddress> addresses = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong requestId = new AtomicLong();
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+
+    /**
+     * Open-Falcon transfer 的JSON-RPC客户端
+     * @param addresses
+     * transfer的RPC地址列表,格式为 host:port
+     * @param connections
+     * 每个地址保持的最大空闲连接数
+     * @param connectTimeout
+     * 连接超时(毫秒)
+     * @param readTimeout
+     * 读取超时(毫秒)
+     */
+    public TransferClient(List<String> addresses, int connections, int connectTimeout, int readTimeout) {
+        for (String address : addresses) {
+            int index = address.lastIndexOf(':');
+            this.addresses.add(new TransferAddress(address.substring(0,index),
+                    Integer.parseInt(address.substring(index + 1)),connections));
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * 调用 Transfer.Update 上报数据
+     * @param data
+     * UTF-8编码的json数组,即 {@link FalconJsonEncoder} 的编码结果
+     * @param length
+     * data的有效长度
+     * @param count
+     * 包含的报告数
+     * @return
+     * true : 上报成功
+     */
+    public boolean update(byte[] data, int length, int count){
+        int size = addresses.size();
+        int start = Math.floorMod(next.getAndIncrement(),size);
+        //可用的地址优先,最近失败过的地址最后尝试
+        List<TransferAddress> candidates = new ArrayList<>(size);
+        List<TransferAddress> downs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TransferAddress address = addresses.get((start + i) % size);
+            (address.isAvailable() ? candidates : downs).add(address);
+        }
+        candidates.addAll(downs);
+
+        for (int i = 0; i < candidates.size(); i++) {
+            TransferAddress address = candidates.get(i);
+            if(i > 0){
+                failovers.incrementAndGet();
+            }
+            requests.incrementAndGet();
+            long startTime = System.currentTimeMillis();
+            try {
+                JSONObject result = address.call(data,length);
+                latency.record(System.currentTimeMillis() - startTime);
+                address.success.incrementAndGet();
+                log.info("transfer({})回执({}条): {}",address,count,result);
+                if(result != null && result.getIntValue("Invalid") > 0){
+                    log.warn("transfer({})拒绝了 {} 条无效的数据",address,result.getIntValue("Invalid"));
+                }
+                return true;
+            } catch (IOException e) {
+                latency.record(System.currentTimeMillis() - startTime);
+                errors.incrementAndGet();
+                address.markDown();
+                log.error("transfer({})上报失败: {}",address,e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void close(){
+        for (TransferAddress address : addresses) {
+            address.close();
+        }
+    }
+
+    /**
+     * 客户端的统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("requests",requests.get());
+        status.put("errors",errors.get());
+        status.put("failovers",failovers.get());
+        JSONArray addressStatus = new JSONArray();
+        for (TransferAddress address : addresses) {
+            addressStatus.add(address.status());
+        }
+        status.put("addresses",addressStatus);
+        status.put("latency",latency.toJSON());
+        return status;
+    }
+
+    /**
+     * 一个transfer地址及其空闲连接
+     */
+    private class TransferAddress {
+        private final String host;
+        private final int port;
+        private final BlockingQueue<TransferConnection> idle;
+        private volatile long downUntil = 0;
+        private final AtomicLong success = new AtomicLong();
+        private final AtomicLong failure = new AtomicLong();
+
+        TransferAddress(String host, int port, int connections) {
+            this.host = host;
+            this.port = port;
+            this.idle = new ArrayBlockingQueue<>(connections);
+        }
+
+        boolean isAvailable(){
+            return System.currentTimeMillis() >= downUntil;
+        }
+
+        void markDown(){
+            failure.incrementAndGet();
+            downUntil = System.currentTimeMillis() + DOWN_TIME;
+            //连接可能都已失效
+            close();
+        }
+
+        JSONObject call(byte[] data, int length) throws IOException {
+            TransferConnection connection = idle.poll();
+            if(connection == null){
+                connection = new TransferConnection(host,port);
+            }
+            try {
+                JSONObject result = connection.call(requestId.incrementAndGet(),data,length);
+                if(!idle.offer(connection)){
+                    connection.close();
+                }
+                return result;
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+        }
+
+        void close(){
+            TransferConnection connection;
+            while ((connection = idle.poll()) != null){
+                connection.close();
+            }
+        }
+
+        JSONObject status(){
+            JSONObject status = new JSONObject(true);
+            status.put("address",toString());
+            status.put("available",isAvailable());
+            status.put("idleConnections",idle.size());
+            status.put("success",success.get());
+            status.put("failure",failure.get());
+            return status;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * 到transfer的一个TCP连接,同一时刻只被一个线程使用
+     * Go net/rpc/jsonrpc 的编解码格式:每个请求及响应都是一个以换行结尾的json对象
+     */
+    private class TransferConnection {
+        private final Socket socket;
+        private final OutputStream out;
+        private final BufferedReader in;
+
+        TransferConnection(String host, int port) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                socket.setSoTimeout(readTimeout);
+                socket.connect(new InetSocketAddress(host,port),connectTimeout);
+                out = new BufferedOutputStream(socket.getOutputStream(),64 * 1024);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream(),StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        JSONObject call(long id, byte[] data, int length) throws IOException {
+            out.write(REQUEST_PREFIX);
+            out.write(data,0,length);
+            out.write(REQUEST_ID);
+            out.write(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+            out.write('}');
+            out.write('\n');
+            out.flush();
+
+            String line = in.readLine();
+            if(line == null){
+                throw new EOFException("连接已被transfer关闭");
+            }
+            JSONObject response;
+            try {
+                response = JSON.parseObject(line);
+            } catch (Exception e) {
+                throw new IOException("无法解析transfer的响应: " + line);
+            }
+            if(response == null || response.getLongValue("id") != id){
+                throw new IOException("transfer的响应与请求不匹配: " + line);
+            }
+            Object error = response.get("error");
+            if(error != null){
+                throw new IOException("transfer返回错误: " + error);
+            }
+            return response.getJSONObject("result");
+        }
+
+        void close(){
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.config.AgentConfiguration;
+import com.falcon.suitagent.falcon.AgentMetrics;
+import com.falcon.suitagent.falcon.CircuitBreaker;
+import com.falcon.suitagent.falcon.FalconPushClient;
+import com.falcon.suitagent.falcon.SpillQueue;
+import com.falcon.suitagent.falcon.TransferClient;
+import com.falcon.suitagent.util.DateUtil;
+import com.falcon.suitagent.vo.HttpResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * 输出到Falcon
+ * 配置了transfer地址时直接上报到transfer,否则push到falcon push地址。
+ * 因推送地址不可用而发送失败的数据写入磁盘溢出队列,待恢复后回放;被接收方拒绝(4xx)的数据记录日志后丢弃。
+ * 发送经过熔断器,熔断期间不再发起请求,数据直接写入磁盘溢出队列(未启用时丢弃)。
+ * @author agent@local
+ */
+@Slf4j
+public class FalconSink implements ReportSink {
+
+    public static final String NAME = "falcon";
+
+    private final TransferClient transferClient;
+    private final FalconPushClient pushClient;
+    private final CircuitBreaker breaker;
+    private SpillQueue spillQueue;
+
+    public FalconSink() {
+        AgentConfiguration conf = AgentConfiguration.INSTANCE;
+        if(conf.getPushTransferAddresses().isEmpty()){
+            transferClient = null;
+            pushClient = new FalconPushClient(conf.getAgentPushUrl(),
+                    conf.getPushConcurrency(),
+                    conf.getPushKeepAlive(),
+                    conf.getPushConnectTimeout(),
+                    conf.getPushReadTimeout(),
+                    conf.getPushCompression(),
+                    conf.getPushCompressThreshold());
+        }else{
+            pushClient = null;
+            transferClient = new TransferClient(conf.getPushTransferAddresses(),
+                    conf.getPushConcurrency(),
+                    conf.getPushConnectTimeout(),
+                    conf.getPushReadTimeout());
+            log.info("监控数据将直接上报到transfer : {}",conf.getPushTransferAddresses());
+        }
+
+        if(conf.isPushBreakerEnable()){
+            breaker = new CircuitBreaker(NAME,conf.getPushBreakerFailureThreshold(),
+                    conf.getPushBreakerBackoffBase(),conf.getPushBreakerBackoffMax());
+            AgentMetrics.gauge("push.breaker.state","sink=" + NAME,() -> breaker.getState().getValue());
+        }else{
+            breaker = null;
+        }
+
+        if(conf.isPushSpillEnable()){
+            try {
+                spillQueue = new SpillQueue(new File(conf.getPushSpillDir()),
+                        conf.getPushSpillMaxSize() * 1024L * 1024L,
+                        (int) (conf.getPushSpillSegmentSize() * 1024L * 1024L));
+                spillQueue.startReplay((payload, count) -> post(payload,payload.length,count).replayResult,
+                        conf.getPushSpillReplayRate());
+            } catch (Exception e) {
+                log.error("磁盘溢出队列初始化失败,push失败的数据将被丢弃",e);
+                spillQueue = null;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean send(ReportBatch batch) {
+        byte[] json = batch.json();
+        if(log.isDebugEnabled()){
+            long timestamp = batch.getReports().get(batch.size() - 1).getTimestamp();
+            String time = DateUtil.getFormatDateTime(new Date(timestamp * 1000));
+            log.debug("报告Falcon({}) : [{}]",time,new String(json,StandardCharsets.UTF_8));
+        }
+        Result result = post(json,json.length,batch.size());
+        if(result == Result.SUCCESS){
+            if(spillQueue != null){
+                spillQueue.setHealthy(true);
+            }
+            return true;
+        }
+        if(result == Result.REJECTED){
+            //接收方拒绝的数据重试也不会成功,不写入磁盘溢出队列
+            log.error("push的 {} 条报告被接收方拒绝,已丢弃: {}",batch.size(),new String(json,StandardCharsets.UTF_8));
+            return false;
+        }
+        if(spillQueue != null){
+            spillQueue.setHealthy(false);
+            if(spillQueue.append(json,json.length,batch.size())){
+                log.info("push失败的 {} 条报告已写入磁盘溢出队列,待恢复后回放",batch.size());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 推送json数据到falcon
+     * @param data
+     * UTF-8编码的json数据
+     * @param length
+     * data的有效长度
+     * @param count
+     * 包含的报告数
+     * @return
+     * 熔断期间返回 {@link Result#UNAVAILABLE}
+     */
+    private Result post(byte[] data,int length,int count){
+        if(breaker == null){
+            return doPost(data,length,count);
+        }
+        if(!breaker.allowRequest()){
+            return Result.UNAVAILABLE;
+        }
+        Result result = doPost(data,length,count);
+        if(result == Result.UNAVAILABLE){
+            breaker.onFailure();
+        }else{
+            breaker.onSuccess();
+        }
+        return result;
+    }
+
+    private enum Result {
+        SUCCESS(SpillQueue.ReplayResult.SUCCESS),
+        /**
+         * 接收方返回了错误,但其服务可用,重试也不会成功
+         */
+        REJECTED(SpillQueue.ReplayResult.REJECTED),
+        /**
+         * 连接失败、超时或服务端错误,可以稍后重试
+         */
+        UNAVAILABLE(SpillQueue.ReplayResult.RETRY);
+
+        private final SpillQueue.ReplayResult replayResult;
+
+        Result(SpillQueue.ReplayResult replayResult) {
+            this.replayResult = replayResult;
+        }
+    }
+
+    private Result doPost(byte[] data,int length,int count){
+        if(transferClient != null){
+            return transferClient.update(data,length,count) ? Result.SUCCESS : Result.UNAVAILABLE;
+        }
+        HttpResult result;
+        try {
+            result = pushClient.post(data,length);
+        } catch (Exception e) {
+            log.error("metrics push异常,检查Falcon组件是否运行正常",e);
+            return Result.UNAVAILABLE;
+        }
+        log.info("push回执({}条): {}" ,count, result);
+        if(result.getStatus() == 200){
+            return Result.SUCCESS;
+        }
+        return result.getStatus() >= 500 ? Result.UNAVAILABLE : Result.REJECTED;
+    }
+
+    @Override
+    public JSONObject status() {
+        JSONObject status = new JSONObject(true);
+        if(transferClient != null){
+            status.put("transfer",transferClient.status());
+        }else{
+            status.put("http",pushClient.status());
+        }
+        if(breaker != null){
+            status.put("breaker",breaker.status());
+        }
+        if(spillQueue != null){
+            status.put("spill",spillQueue.status());
+        }
+        return status;
+    }
+
+    @Override
+    public void close() {
+        if(spillQueue != null){
+            spillQueue.shutdown();
+        }
+        if(transferClient != null){
+            transferClient.close();
+        }else{
+            pushClient.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.falcon.FalconReportObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以InfluxDB line protocol格式输出到本地滚动文件
+ * 每条报告一行: metric,endpoint=xx,counterType=GAUGE,tag1=v1 value=1.5 timestamp (时间戳精度为秒)
+ * 当前文件超过指定大小后重命名为 metrics.line.1 ,已有的滚动文件依次后移,超出保留个数的文件被删除
+ * @author agent@local
+ */
+@Slf4j
+public class FileSink implements ReportSink {
+
+    public static final String NAME = "file";
+    private static final String FILE_NAME = "metrics.line";
+
+    private final File dir;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    private File file;
+    private Writer writer;
+    private long bytes;
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong rolls = new AtomicLong();
+
+    /**
+     * @param dir
+     * 输出目录
+     * @param maxBytes
+     * 单个文件的最大字节数
+     * @param maxFiles
+     * 保留的滚动文件个数
+     * @throws IOException
+     */
+    public FileSink(File dir, long maxBytes, int maxFiles) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        if(!dir.exists() && !dir.mkdirs()){
+            throw new IOException("目录创建失败:" + dir.getAbsolutePath());
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        file = new File(dir,FILE_NAME);
+        bytes = file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file,true),StandardCharsets.UTF_8),64 * 1024);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized boolean send(ReportBatch batch) {
+        StringBuilder line = new StringBuilder(256);
+        try {
+            for (FalconReportObject report : batch.getReports()) {
+                line.setLength(0);
+                appendLine(line,report);
+                writer.write(line.toString());
+                bytes += line.length();
+            }
+            writer.flush();
+            lines.addAndGet(batch.size());
+            if(bytes >= maxBytes){
+                roll();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("监控数据写入文件 {} 失败",file.getAbsolutePath(),e);
+            return false;
+        }
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        File last = new File(dir,FILE_NAME + "." + maxFiles);
+        if(last.exists() && !last.delete()){
+            log.warn("滚动文件删除失败:{}",last.getAbsolutePath());
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File rolled = new File(dir,FILE_NAME + "." + i);
+            if(rolled.exists() && !rolled.renameTo(new File(dir,FILE_NAME + "." + (i + 1)))){
+                log.warn("滚动文件重命名失败:{}",rolled.getAbsolutePath());
+            }
+        }
+        if(!file.renameTo(new File(dir,FILE_NAME + ".1"))){
+            log.warn("滚动文件重命名失败:{}",file.getAbsolutePath());
+        }
+        rolls.incrementAndGet();
+        open();
+    }
+
+    /**
+     * 报告转换为line protocol的一行
+     * @param line
+     * @param report
+     */
+    static void appendLine(StringBuilder line,FalconReportObject report){
+        escape(line,report.getMetric(),false);
+        line.append(",endpoint=");
+        escape(line,report.getEndpoint(),true);
+        if(report.getCounterType() != null){
+            line.append(",counterType=").append(report.getCounterType().name());
+        }
+        String tags = report.getTags();
+        if(tags != null && !tags.isEmpty()){
+            for (String tag : tags.split(",")) {
+                int index = tag.indexOf('=');
+                if(index <= 0 || index == tag.length() - 1){
+                    continue;
+                }
+                line.append(',');
+                escape(line,tag.substring(0,index).trim(),true);
+                line.append('=');
+                escape(line,tag.substring(index + 1).trim(),true);
+            }
+        }
+        line.append(" value=");
+        if(report.isIntegral()){
+            line.append(report.getLongValue());
+        }else if(report.isNumeric()){
+            line.append(report.getDoubleValue());
+        }else{
+            String value = report.getValue();
+            line.append('"');
+            if(value != null){
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if(c == '"' || c == '\\'){
+                        line.append('\\');
+                    }
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+        line.append(' ').append(report.getTimestamp()).append('\n');
+    }
+
+    /**
+     * 转义measurement或tag中的特殊字符
+     * @param line
+     * @param value
+     * @param tag
+     * 是否为tag的键值(tag中的等号也需转义)
+     */
+    private static void escape(StringBuilder line,String value,boolean tag){
+        if(value == null){
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '\n' || c == '\r'){
+                //换行替换为转义的空格
+                line.append("\\ ");
+                continue;
+            }
+            if(c == ',' || c == ' ' || (tag && c == '=')){
+                line.append('\\');
+            }
+            line.append(c);
+        }
+    }
+
+    @Override
+    public JSONObject status() {
+        JSONObject status = new JSONObject(true);
+        status.put("file",file.getAbsolutePath());
+        status.put("bytes",bytes);
+        status.put("lines",lines.get());
+        status.put("rolls",rolls.get());
+        return status;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("文件 {} 关闭失败",file.getAbsolutePath(),e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:26 创建
+ */
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.falcon.CounterType;
+import com.falcon.suitagent.falcon.FalconReportObject;
+import com.falcon.suitagent.falcon.MetricKey;
+import com.falcon.suitagent.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输出到进程内的时间序列存储
+ * 每个序列(endpoint + metric + tags)以基本类型数组的环形缓冲区保留最近的数据点,
+ * 作为本地的飞行记录仪,Falcon不可达或排查单机问题时可通过web服务的 /query 按指标及tag查询时间范围内的数据。
+ * 内存按预算限制: 长时间未更新的序列定期清除,超出预算时淘汰最久未更新的序列。
+ * @author agent@local
+ */
+@Slf4j
+public class HistorySink implements ReportSink {
+
+    public static final String NAME = "history";
+
+    /**
+     * 每个序列除数据点外的估算内存开销(字节)
+     */
+    private static final int SERIES_OVERHEAD = 160;
+    /**
+     * 每个数据点的内存占用: long时间戳 + double值
+     */
+    private static final int POINT_SIZE = 16;
+    /**
+     * 空闲序列的清理间隔(毫秒)
+     */
+    private static final long SWEEP_INTERVAL = 60000;
+
+    private final ConcurrentHashMap<MetricKey,Series> seriesMap = new ConcurrentHashMap<>();
+    private final int points;
+    private final long memoryBudget;
+    private final long idleMillis;
+
+    private final AtomicLong memoryUsed = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong nonNumeric = new AtomicLong();
+    private final AtomicLong idleEvicted = new AtomicLong();
+    private final AtomicLong budgetEvicted = new AtomicLong();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    /**
+     * @param points
+     * 每个序列保留的数据点数
+     * @param memoryBudget
+     * 内存预算(字节)
+     * @param idleSeconds
+     * 序列超过此时间(秒)未更新则被清除
+     */
+    public HistorySink(int points, long memoryBudget, int idleSeconds) {
+        this.points = points;
+        this.memoryBudget = memoryBudget;
+        this.idleMillis = idleSeconds * 1000L;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean send(ReportBatch batch) {
+        long now = System.currentTimeMillis();
+        for (FalconReportObject report : batch.getReports()) {
+            received.incrementAndGet();
+            if(!report.isNumeric()){
+                nonNumeric.incrementAndGet();
+                continue;
+            }
+            MetricKey key = report.getMetricKey();
+            Series series = seriesMap.get(key);
+            if(series == null){
+                series = newSeries(key,report);
+            }
+            series.add(report.getTimestamp(),report.getDoubleValue(),now);
+        }
+        if(now - lastSweep > SWEEP_INTERVAL){
+            lastSweep = now;
+            sweepIdle(now);
+        }
+        return true;
+    }
+
+    private Series newSeries(MetricKey key, FalconReportObject report){
+        long size = SERIES_OVERHEAD + key.toString().length() * 2L + points * (long) POINT_SIZE;
+        Series series = new Series(report,points,size);
+        Series exist = seriesMap.putIfAbsent(key,series);
+        if(exist != null){
+            return exist;
+        }
+        if(memoryUsed.addAndGet(size) > memoryBudget){
+            evictOverBudget();
+        }
+        return series;
+    }
+
+    private void sweepIdle(long now){
+        Iterator<Map.Entry<MetricKey,Series>> iterator = seriesMap.entrySet().iterator();
+        while (iterator.hasNext()){
+            Series series = iterator.next().getValue();
+            if(now - series.lastUpdate > idleMillis){
+                iterator.remove();
+                memoryUsed.addAndGet(-series.memory);
+                idleEvicted.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 超出内存预算时淘汰最久未更新的序列,一次多释放预算的十分之一,避免每个新序列都触发淘汰
+     */
+    private synchronized void evictOverBudget(){
+        if(memoryUsed.get() <= memoryBudget){
+            return;
+        }
+        List<Map.Entry<MetricKey,Series>> entries = new ArrayList<>(seriesMap.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastUpdate));
+        long target = memoryBudget - memoryBudget / 10;
+        for (Map.Entry<MetricKey, Series> entry : entries) {
+            if(memoryUsed.get() <= target){
+                break;
+            }
+            if(seriesMap.remove(entry.getKey(),entry.getValue())){
+                memoryUsed.addAndGet(-entry.getValue().memory);
+                budgetEvicted.incrementAndGet();
+            }
+        }
+        log.warn("history输出目标超出内存预算 {} 字节,已淘汰最久未更新的序列,当前序列数 {}",memoryBudget,seriesMap.size());
+    }
+
+    /**
+     * 查询时间范围内的数据
+     * @param metric
+     * 指标名称,以 * 结尾时按前缀匹配,为空时匹配所有指标
+     * @param endpoint
+     * endpoint,为空时不过滤
+     * @param tags
+     * tag过滤条件,格式同报告的tags(k1=v1,k2=v2),序列须包含所有指定的tag
+     * @param start
+     * 起始时间戳(秒,含)
+     * @param end
+     * 结束时间戳(秒,含)
+     * @param limit
+     * 最多返回的序列数
+     * @return
+     */
+    public JSONArray query(String metric, String endpoint, String tags, long start, long end, int limit){
+        List<String> tagFilter = splitTags(tags);
+        JSONArray result = new JSONArray();
+        for (Series series : seriesMap.values()) {
+            if(result.size() >= limit){
+                break;
+            }
+            MetricKey key = series.key;
+            if(!matchMetric(key.getMetric(),metric)
+                    || (!StringUtils.isEmpty(endpoint) && !endpoint.equals(key.getEndpoint()))
+                    || !splitTags(key.getTags()).containsAll(tagFilter)){
+                continue;
+            }
+            JSONArray values = series.range(start,end);
+            if(values.isEmpty()){
+                continue;
+            }
+            JSONObject json = new JSONObject(true);
+            json.put("endpoint",key.getEndpoint());
+            json.put("metric",key.getMetric());
+            json.put("tags",key.getTags());
+            json.put("counterType",series.counterType);
+            json.put("step",series.step);
+            json.put("values",values);
+            result.add(json);
+        }
+        return result;
+    }
+
+    private static boolean matchMetric(String seriesMetric, String metric){
+        if(StringUtils.isEmpty(metric)){
+            return true;
+        }
+        if(metric.endsWith("*")){
+            return seriesMetric != null && seriesMetric.startsWith(metric.substring(0,metric.length() - 1));
+        }
+        return metric.equals(seriesMetric);
+    }
+
+    private static List<String> splitTags(String tags){
+        if(StringUtils.isEmpty(tags)){
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        for (String tag : tags.split(",")) {
+            tag = tag.trim();
+            if(!tag.isEmpty()){
+                result.add(tag);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public JSONObject status() {
+        JSONObject status = new JSONObject(true);
+        status.put("series",seriesMap.size());
+        status.put("pointsPerSeries",points);
+        status.put("memoryUsed",memoryUsed.get());
+        status.put("memoryBudget",memoryBudget);
+        status.put("received",received.get());
+        status.put("nonNumeric",nonNumeric.get());
+        status.put("idleEvicted",idleEvicted.get());
+        status.put("budgetEvicted",budgetEvicted.get());
+        return status;
+    }
+
+    @Override
+    public void close() {
+        seriesMap.clear();
+        memoryUsed.set(0);
+    }
+
+    /**
+     * 单个序列的环形缓冲区
+     */
+    private static class Series {
+        private final MetricKey key;
+        private final CounterType counterType;
+        private final int step;
+        private final long[] timestamps;
+        private final double[] values;
+        /**
+         * 已写入的数据点总数,下一个写入位置为 total % capacity
+         */
+        private long total;
+        private volatile long lastUpdate;
+        private final long memory;
+
+        Series(FalconReportObject report, int capacity, long memory) {
+            this.key = report.getMetricKey();
+            this.counterType = report.getCounterType();
+            this.step = report.getStep();
+            this.timestamps = new long[capacity];
+            this.values = new double[capacity];
+            this.memory = memory;
+            this.lastUpdate = System.currentTimeMillis();
+        }
+
+        synchronized void add(long timestamp, double value, long now){
+            int index = (int) (total % timestamps.length);
+            timestamps[index] = timestamp;
+            values[index] = value;
+            total++;
+            lastUpdate = now;
+        }
+
+        synchronized JSONArray range(long start, long end){
+            JSONArray result = new JSONArray();
+            for (long i = Math.max(0,total - timestamps.length); i < total; i++) {
+                int index = (int) (i % timestamps.length);
+                if(timestamps[index] >= start && timestamps[index] <= end){
+                    JSONArray point = new JSONArray(2);
+                    point.add(timestamps[index]);
+                    point.add(values[index]);
+                    result.add(point);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.falcon.suitagent.falcon.FalconJsonEncoder;
+import com.falcon.suitagent.falcon.FalconReportObject;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分发给各输出目标的一批报告
+ * 序列化结果在首次使用时生成并在输出目标之间共享,同一批报告只序列化一次
+ * @author agent@local
+ */
+public class ReportBatch {
+
+    private final List<FalconReportObject> reports;
+    private volatile byte[] json;
+
+    public ReportBatch(List<FalconReportObject> reports) {
+        this.reports = Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * 批次中的报告
+     * @return
+     */
+    public List<FalconReportObject> getReports() {
+        return reports;
+    }
+
+    /**
+     * 批次中的报告数
+     * @return
+     */
+    public int size(){
+        return reports.size();
+    }
+
+    /**
+     * Falcon push格式的json数组(UTF-8编码)
+     * @return
+     */
+    public byte[] json(){
+        byte[] result = json;
+        if(result == null){
+            synchronized (this){
+                result = json;
+                if(result == null){
+                    result = FalconJsonEncoder.get().encode(reports).toByteArray();
+                    json = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 监控数据的输出目标
+ * 每个输出目标拥有独立的有界队列及工作线程(见 {@link SinkWorker}),慢的输出目标不会阻塞其他输出目标
+ * @author agent@local
+ */
+public interface ReportSink {
+
+    /**
+     * 输出目标的名称
+     * @return
+     */
+    String getName();
+
+    /**
+     * 输出一批报告
+     * 可能被多个工作线程同时调用
+     * @param batch
+     * @return
+     * true : 输出成功
+     */
+    boolean send(ReportBatch batch);
+
+    /**
+     * 输出目标的统计信息
+     * @return
+     */
+    JSONObject status();
+
+    /**
+     * 关闭输出目标,释放资源
+     */
+    void close();
+}
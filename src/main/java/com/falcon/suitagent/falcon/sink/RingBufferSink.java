@@ -0,0 +1,81 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.falcon.FalconReportObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 输出到进程内的环形缓冲区
+ * 保留最近的报告,可通过web服务的 /recent 查看,用于本地调试
+ * @author agent@local
+ */
+public class RingBufferSink implements ReportSink {
+
+    public static final String NAME = "ring";
+
+    private final FalconReportObject[] buffer;
+    /**
+     * 已写入的报告总数,下一个写入位置为 total % capacity
+     */
+    private long total;
+
+    /**
+     * @param capacity
+     * 缓冲区容量
+     */
+    public RingBufferSink(int capacity) {
+        this.buffer = new FalconReportObject[capacity];
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized boolean send(ReportBatch batch) {
+        for (FalconReportObject report : batch.getReports()) {
+            buffer[(int) (total % buffer.length)] = report;
+            total++;
+        }
+        return true;
+    }
+
+    /**
+     * 最近的报告,按写入顺序排列
+     * @param limit
+     * 最多返回的报告数
+     * @return
+     */
+    public synchronized List<FalconReportObject> recent(int limit){
+        int size = (int) Math.min(Math.min(total,buffer.length),Math.max(limit,0));
+        List<FalconReportObject> result = new ArrayList<>(size);
+        for (long i = total - size; i < total; i++) {
+            result.add(buffer[(int) (i % buffer.length)]);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized JSONObject status() {
+        JSONObject status = new JSONObject(true);
+        status.put("capacity",buffer.length);
+        status.put("size",Math.min(total,buffer.length));
+        status.put("total",total);
+        return status;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon.sink;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:18 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输出目标的有界队列及工作线程
+ * 分发时不阻塞,队列满时丢弃该输出目标最旧的批次
+ * @author agent@local
+ */
+@Slf4j
+public class SinkWorker {
+
+    private final ReportSink sink;
+    private final BlockingQueue<ReportBatch> queue;
+    private final Thread[] threads;
+    private volatile boolean running = true;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param sink
+     * 输出目标
+     * @param capacity
+     * 队列可容纳的批次数
+     * @param concurrency
+     * 工作线程数
+     */
+    public SinkWorker(ReportSink sink, int capacity, int concurrency) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.threads = new Thread[Math.max(concurrency,1)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this::workLoop);
+            threads[i].setName("sink-" + sink.getName() + "-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * 批次入队
+     * @param batch
+     * @return
+     * false : 未能入队
+     */
+    public boolean offer(ReportBatch batch){
+        for (int i = 0; i < 3; i++) {
+            if(queue.offer(batch)){
+                return true;
+            }
+            ReportBatch oldest = queue.poll();
+            if(oldest != null){
+                dropped.addAndGet(oldest.size());
+                log.warn("输出目标 {} 的队列已满,丢弃最旧的 {} 条报告",sink.getName(),oldest.size());
+            }
+        }
+        dropped.addAndGet(batch.size());
+        return false;
+    }
+
+    private void workLoop(){
+        while (running || !queue.isEmpty()){
+            ReportBatch batch;
+            try {
+                batch = queue.poll(1,TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                //关闭时中断,处理剩余的批次
+                continue;
+            }
+            if(batch == null){
+                continue;
+            }
+            boolean success;
+            try {
+                success = sink.send(batch);
+            } catch (Exception e) {
+                log.error("输出目标 {} 输出异常",sink.getName(),e);
+                success = false;
+            }
+            if(success){
+                sent.addAndGet(batch.size());
+            }else{
+                failed.addAndGet(batch.size());
+            }
+        }
+    }
+
+    public ReportSink getSink() {
+        return sink;
+    }
+
+    /**
+     * 输出目标发送成功的报告数
+     * @return
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * 输出目标发送失败的报告数
+     * @return
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 关闭工作线程,处理完剩余的批次后关闭输出目标
+     * @param timeout
+     * 最长等待时间(毫秒)
+     */
+    public void shutdown(long timeout){
+        running = false;
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join(Math.max(deadline - System.currentTimeMillis(),1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(!queue.isEmpty()){
+            log.warn("输出目标 {} 关闭时仍有 {} 批报告未输出",sink.getName(),queue.size());
+        }
+        sink.close();
+    }
+
+    /**
+     * 统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("queuedBatches",queue.size());
+        status.put("concurrency",threads.length);
+        status.put("sent",sent.get());
+        status.put("failed",failed.get());
+        status.put("dropped",dropped.get());
+        JSONObject sinkStatus = sink.status();
+        if(sinkStatus != null){
+            status.putAll(sinkStatus);
+        }
+        return status;
+    }
+}
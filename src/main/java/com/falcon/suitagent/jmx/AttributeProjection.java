@@ -0,0 +1,125 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.jmx;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:46 创建
+ */
+
+import com.falcon.suitagent.vo.jmx.JMXMetricsConfiguration;
+
+import javax.management.ObjectName;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JMX插件需要读取的mBean属性
+ * 由监控项配置(objectName 、metrics 、alias)及内置的内存、GC指标计算每个ObjectName需要的属性,
+ * 采集时只读取这些属性,而不是mBean的全部属性。
+ * 每个插件缓存一个实例,监控项配置变化时重新计算;每个ObjectName的计算结果在实例内缓存。
+ * @author agent@local
+ */
+public final class AttributeProjection {
+
+    private static final String[] NONE = new String[0];
+    private static final String MEMORY = "java.lang:type=Memory";
+    private static final String METASPACE = "java.lang:type=MemoryPool,name=Metaspace";
+    private static final String GARBAGE_COLLECTOR = "java.lang:type=GarbageCollector";
+    /**
+     * 每个实例缓存的ObjectName最大个数
+     */
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    private static final Map<String,AttributeProjection> PROJECTIONS = new ConcurrentHashMap<>();
+
+    private final String signature;
+    /**
+     * 监控项配置的ObjectName(包含匹配)到属性名的映射
+     */
+    private final Map<String,Set<String>> rules = new LinkedHashMap<>();
+    private final Map<String,String[]> cache = new ConcurrentHashMap<>();
+
+    private AttributeProjection(String signature, Collection<JMXMetricsConfiguration> configurations) {
+        this.signature = signature;
+        for (JMXMetricsConfiguration configuration : configurations) {
+            if(configuration.getObjectName() == null){
+                continue;
+            }
+            Set<String> attributes = rules.computeIfAbsent(configuration.getObjectName(),k -> new LinkedHashSet<>());
+            if(configuration.getMetrics() != null){
+                attributes.add(configuration.getMetrics());
+            }
+            if(configuration.getAlias() != null){
+                attributes.add(configuration.getAlias());
+            }
+        }
+    }
+
+    /**
+     * 获取插件的属性投影,监控项配置未变化时返回缓存的实例
+     * @param pluginName
+     * @param configurations
+     * 插件的监控项配置
+     * @return
+     */
+    public static AttributeProjection of(String pluginName, Collection<JMXMetricsConfiguration> configurations){
+        String signature = signature(configurations);
+        AttributeProjection projection = PROJECTIONS.get(pluginName);
+        if(projection == null || !projection.signature.equals(signature)){
+            projection = new AttributeProjection(signature,configurations);
+            PROJECTIONS.put(pluginName,projection);
+        }
+        return projection;
+    }
+
+    private static String signature(Collection<JMXMetricsConfiguration> configurations){
+        List<String> items = new ArrayList<>(configurations.size());
+        for (JMXMetricsConfiguration configuration : configurations) {
+            items.add(configuration.getObjectName() + "\u0000" + configuration.getMetrics() + "\u0000" + configuration.getAlias());
+        }
+        Collections.sort(items);
+        return String.join("\u0001",items);
+    }
+
+    /**
+     * 需要读取的属性名
+     * @param objectName
+     * @return
+     * 不需要读取任何属性时返回空数组
+     */
+    public String[] attributes(ObjectName objectName){
+        String name = objectName.toString();
+        String[] attributes = cache.get(name);
+        if(attributes == null){
+            attributes = compute(name);
+            if(cache.size() >= MAX_CACHE_SIZE){
+                cache.clear();
+            }
+            cache.put(name,attributes);
+        }
+        return attributes;
+    }
+
+    private String[] compute(String name){
+        Set<String> attributes = new LinkedHashSet<>();
+        //内置指标
+        if(MEMORY.equals(name)){
+            attributes.add("HeapMemoryUsage");
+            attributes.add("NonHeapMemoryUsage");
+        }else if(METASPACE.equals(name)){
+            attributes.add("Usage");
+        }else if(name.contains(GARBAGE_COLLECTOR)){
+            attributes.add("Name");
+            attributes.add("CollectionCount");
+            attributes.add("CollectionTime");
+        }
+        for (Map.Entry<String, Set<String>> rule : rules.entrySet()) {
+            if(name.contains(rule.getKey())){
+                attributes.addAll(rule.getValue());
+            }
+        }
+        return attributes.isEmpty() ? NONE : attributes.toArray(new String[attributes.size()]);
+    }
+}
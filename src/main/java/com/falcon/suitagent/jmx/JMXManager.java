@@ -4,6 +4,7 @@
  */
 package com.falcon.suitagent.jmx;
 
+import com.falcon.suitagent.config.AgentConfiguration;
 import com.falcon.suitagent.exception.JMXUnavailabilityException;
 import com.falcon.suitagent.exception.JMXUnavailabilityType;
 import com.falcon.suitagent.jmx.vo.JMXConnectionInfo;
@@ -12,17 +13,20 @@ import com.falcon.suitagent.jmx.vo.JMXObjectNameInfo;
 import com.falcon.suitagent.plugins.JMXPlugin;
 import com.falcon.suitagent.util.BlockingQueueUtil;
 import com.falcon.suitagent.util.ExceptionUtil;
+import com.falcon.suitagent.util.Bulkhead;
+import com.falcon.suitagent.util.Deadline;
 import com.falcon.suitagent.util.ExecuteThreadUtil;
 import com.falcon.suitagent.util.JMXMetricsConfigUtil;
 import com.falcon.suitagent.vo.jmx.JMXMetricsConfiguration;
 import com.falcon.suitagent.vo.jmx.JavaExecCommandInfo;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.management.MBeanAttributeInfo;
-import javax.management.ObjectInstance;
-import javax.management.ObjectName;
+import javax.management.*;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /*
@@ -50,9 +54,12 @@ public class JMXManager {
      */
     public static List<JMXMetricsValueInfo> getJmxMetricValue(String serverName, JMXPlugin jmxPlugin){
         long timestamp = System.currentTimeMillis() / 1000;
+        //本次采集的时间预算,各子操作的超时时间不超过剩余预算
+        final Deadline deadline = Deadline.after(jmxPlugin.step() * 10L * AgentConfiguration.INSTANCE.getCollectDeadlineRatio());
         final Set<JMXMetricsConfiguration> jmxMetricsConfigurationSet = JMXMetricsConfigUtil.getMetricsConfig(jmxPlugin);
-        final BlockingQueue<Object> blockingQueue4BeanSet = new ArrayBlockingQueue<>(1);
-        final BlockingQueue<Object> blockingQueue4BeanValue = new ArrayBlockingQueue<>(1);
+        //只读取监控项配置及内置指标需要的属性
+        final AttributeProjection projection = AttributeProjection.of(jmxPlugin.pluginName(),jmxMetricsConfigurationSet);
+        final MBeanQuery mBeanQuery = MBeanQuery.of(jmxPlugin.pluginName(),jmxMetricsConfigurationSet);
         List<JavaExecCommandInfo> commandInfoList = jmxPlugin.commandInfoList();
         JMXConnection jmxConnection = new JMXConnection(serverName,commandInfoList);
         List<JMXConnectionInfo> mbeanConns = jmxConnection.getMBeanConnection();
@@ -71,188 +78,379 @@ public class JMXManager {
             return Collections.singletonList(jmxMetricsValueInfo);
         }
 
-        int validCount = 0;
-        List<JMXMetricsValueInfo> jmxMetricsValueInfoList = new ArrayList<>();//返回对象
-        for (JMXConnectionInfo connectionInfo : mbeanConns) {//遍历JMX连接
-            JMXMetricsValueInfo jmxMetricsValueInfo = new JMXMetricsValueInfo();//监控值信息对象
-            jmxMetricsValueInfo.setJmxMetricsConfigurations(jmxMetricsConfigurationSet);
-            jmxMetricsValueInfo.setTimestamp(timestamp);
-            if(connectionInfo.isValid()){//若该JMX连接可用
-                List<JMXObjectNameInfo> objectNameList = new ArrayList<>();//该jmx连接下的所有ObjectName值信息
+        //在插件自己的隔离执行器中读取,目标JVM挂起时不影响其他插件
+        final Bulkhead bulkhead = ExecuteThreadUtil.bulkhead(jmxPlugin.pluginName());
+        final LongAdder validCount = new LongAdder();
+        //各连接的采集结果,按连接的顺序存放
+        final AtomicReferenceArray<JMXMetricsValueInfo> results = new AtomicReferenceArray<>(mbeanConns.size());
+        int parallelism = AgentConfiguration.INSTANCE.getJmxParallelism();
+        if(parallelism <= 1 || mbeanConns.size() <= 1){
+            for (int i = 0; i < mbeanConns.size(); i++) {//遍历JMX连接
+                results.set(i,collectConnection(mbeanConns.get(i),jmxPlugin,timestamp,deadline,jmxMetricsConfigurationSet,
+                        projection,mBeanQuery,bulkhead,validCount));
+            }
+        }else{
+            //多个JVM同时采集,同时采集的连接数由插件的连接执行器限制
+            Bulkhead connectionBulkhead = ExecuteThreadUtil.bulkhead(jmxPlugin.pluginName() + ".connection",
+                    parallelism,AgentConfiguration.INSTANCE.getBulkheadQueue());
+            List<Future<?>> futures = new ArrayList<>(mbeanConns.size());
+            for (int i = 0; i < mbeanConns.size(); i++) {
+                final int index = i;
+                final JMXConnectionInfo connectionInfo = mbeanConns.get(i);
                 try {
-                    //阻塞队列异步执行
-                    ExecuteThreadUtil.execute(() -> {
-                        try {
-                            Set<ObjectInstance> beanSet = connectionInfo.getMBeanServerConnection().queryMBeans(null, null);
-                            //若tomcat服务器运行了springMVC的应用，必须要过滤有以下字符串的mBean，否则可能会导致tomcat中的应用启动失败
-                            beanSet = beanSet.stream()
-                                    .filter(mbean -> {
-                                        String objectName = mbean.getObjectName().toString();
-                                        if (objectName.contains("j2eeType=Servlet")){
-                                            return false;
-                                        }else if(objectName.contains("java.lang:type=Memory") ||
-                                                objectName.contains("java.lang:type=MemoryPool,name=Metaspace")){
-                                            return true;
-                                        }else if (objectName.contains("java.lang:type=GarbageCollector")){
-                                            return true;
-                                        }else{
-                                            for (JMXMetricsConfiguration configuration : jmxMetricsConfigurationSet) {
-                                                if(objectName.contains(configuration.getObjectName())){
-                                                    return true;
-                                                }
-                                            }
-                                        }
-                                        return false;
-                                    })
-                                    .collect(Collectors.toSet());
+                    futures.add(connectionBulkhead.submit(() -> results.set(index,collectConnection(connectionInfo,jmxPlugin,timestamp,
+                            deadline,jmxMetricsConfigurationSet,projection,mBeanQuery,bulkhead,validCount))));
+                } catch (RejectedExecutionException e) {
+                    //与超时相同,连接本身可用,上报部分结果
+                    log.warn("插件 {} 的连接执行队列已满,JMX {} 本次采集被拒绝",jmxPlugin.pluginName(),connectionInfo.toString());
+                    results.set(index,truncatedValueInfo(connectionInfo,timestamp,jmxMetricsConfigurationSet));
+                    validCount.increment();
+                    futures.add(null);
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Future<?> future = futures.get(i);
+                if(future == null){
+                    continue;
+                }
+                try {
+                    //各子操作的超时时间不超过剩余预算,连接的采集最迟在截止时间后不久结束
+                    future.get(deadline.remainingMillis() + mBeanTimeout * 1000L,TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    //不中断采集线程,避免连接被误判为不可用
+                    future.cancel(false);
+                    if(results.compareAndSet(i,null,truncatedValueInfo(mbeanConns.get(i),timestamp,jmxMetricsConfigurationSet))){
+                        validCount.increment();
+                    }
+                } catch (ExecutionException e) {
+                    log.error("JMX {} 采集异常",mbeanConns.get(i).toString(),e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        List<JMXMetricsValueInfo> jmxMetricsValueInfoList = new ArrayList<>(mbeanConns.size());//返回对象
+        for (int i = 0; i < mbeanConns.size(); i++) {
+            JMXMetricsValueInfo jmxMetricsValueInfo = results.get(i);
+            if(jmxMetricsValueInfo == null){
+                //未完成的连接(采集线程被中断)也需要返回,以便于构建报告对象
+                jmxMetricsValueInfo = newValueInfo(mbeanConns.get(i),timestamp,jmxMetricsConfigurationSet);
+            }
+            jmxMetricsValueInfoList.add(jmxMetricsValueInfo);
+        }
 
-                            if (!blockingQueue4BeanSet.offer(beanSet)){
-                                log.error("JMX {} 的objectNameList对象offer失败",connectionInfo.toString());
-                            }
-                        } catch (Throwable t) {
-                            blockingQueue4BeanSet.offer(t);
-                        }
-                    });
+        //若JMX可用的连接数小于该服务应有的JMX连接数,则进行尝试重新构建连接
+        //将会在下一次获取监控值时生效
+        if(validCount.intValue() < (JMXConnection.getServerConnectCount(serverName) + commandInfoList.size())){
+//            if (resetCount >= 100){//该服务超过100次重置操作，强制重置该服务连接状态
+//                jmxConnection.resetMBeanConnection(true);
+//            }
+            log.error("发现服务{}有缺失的JMX连接,尝试重新构建该服务的jmx连接",serverName);
+            jmxConnection.resetMBeanConnection();
+        }
 
-                    //超时15秒
-                    Object resultBeanSet = BlockingQueueUtil.getResult(blockingQueue4BeanSet, objectNameListTimeout, TimeUnit.SECONDS);
-                    blockingQueue4BeanSet.clear();
+        if(jmxMetricsValueInfoList.stream().anyMatch(JMXMetricsValueInfo::isTruncated)){
+            log.warn("插件 {} 的JMX采集超出时间预算({}毫秒),已上报部分结果",jmxPlugin.pluginName(),deadline.elapsedMillis());
+        }
 
-                    if(resultBeanSet instanceof Set){
-                        Set<ObjectInstance> beanSet = (Set<ObjectInstance>) resultBeanSet;
-                        //记录指标采集过程中，有异常的指标
-                        List<JMXUnavailabilityException> mBeanValueGetExceptions = new ArrayList<>();
+        return jmxMetricsValueInfoList;
+    }
 
-                        for (ObjectInstance mbean : beanSet) {
-                            //阻塞队列异步执行
-                            ExecuteThreadUtil.execute(() -> {
-                                try {
-                                    Map<String,Object> map = new HashMap<>();
-                                    JMXObjectNameInfo jmxObjectNameInfo = new JMXObjectNameInfo();
-                                    ObjectName objectName = mbean.getObjectName();
-                                    jmxObjectNameInfo.setObjectName(objectName);
-                                    jmxObjectNameInfo.setJmxConnectionInfo(connectionInfo);
-                                    try {
-                                        for (MBeanAttributeInfo mBeanAttributeInfo : connectionInfo.getMBeanServerConnection().getMBeanInfo(objectName).getAttributes()) {
-                                            ExecutorService mBeanAttrValueGetExec = Executors.newFixedThreadPool(1);
-                                            try {
-                                                Future<Object> value = mBeanAttrValueGetExec.submit(() -> connectionInfo.getMBeanServerConnection().getAttribute(mbean.getObjectName(),mBeanAttributeInfo.getName()));
-                                                map.put(mBeanAttributeInfo.getName(),value.get(3,TimeUnit.SECONDS));
-                                            }finally {
-                                                mBeanAttrValueGetExec.shutdownNow();
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        List<Throwable> throwables = ExceptionUtil.getExceptionCauses(e);
-                                        for (Throwable throwable : throwables) {
-                                            if (throwable != null &&
-                                                    throwable.getClass() == java.net.ConnectException.class){
-                                                throw new JMXUnavailabilityException(JMXUnavailabilityType.connectionFailed,e);
+    /**
+     * 采集一个JMX连接的所有mBean值
+     * @param connectionInfo
+     * @param jmxPlugin
+     * @param timestamp
+     * @param deadline
+     * 本次采集的截止时间
+     * @param jmxMetricsConfigurationSet
+     * @param projection
+     * @param mBeanQuery
+     * @param bulkhead
+     * 读取mBean的执行器
+     * @param validCount
+     * 可用连接的计数
+     * @return
+     */
+    private static JMXMetricsValueInfo collectConnection(JMXConnectionInfo connectionInfo, JMXPlugin jmxPlugin, long timestamp, Deadline deadline,
+                                                         Set<JMXMetricsConfiguration> jmxMetricsConfigurationSet, AttributeProjection projection,
+                                                         MBeanQuery mBeanQuery, Bulkhead bulkhead, LongAdder validCount){
+        JMXMetricsValueInfo jmxMetricsValueInfo = new JMXMetricsValueInfo();//监控值信息对象
+        jmxMetricsValueInfo.setJmxMetricsConfigurations(jmxMetricsConfigurationSet);
+        jmxMetricsValueInfo.setTimestamp(timestamp);
+        if(connectionInfo.isValid()){//若该JMX连接可用
+            //每个连接使用自己的阻塞队列,各连接可以同时采集
+            final BlockingQueue<Object> blockingQueue4BeanSet = new ArrayBlockingQueue<>(1);
+            final BlockingQueue<Object> blockingQueue4BeanValue = new ArrayBlockingQueue<>(1);
+            List<JMXObjectNameInfo> objectNameList = new ArrayList<>();//该jmx连接下的所有ObjectName值信息
+            boolean truncated = false;
+            try {
+                if(deadline.isExpired()){
+                    //预算已耗尽,跳过该连接
+                    throw new CollectTruncatedException();
+                }
+                //阻塞队列异步执行
+                long beanSetTimeout = deadline.timeout(objectNameListTimeout * 1000L);
+                Future<?> beanSetTask = bulkhead.submit(() -> {
+                    try {
+                        //按监控项配置在服务端查询,结果在mBean注册/注销前复用
+                        Set<ObjectInstance> beanSet = connectionInfo.getMBeanQueryCache()
+                                .query(connectionInfo.getMBeanServerConnection(),connectionInfo.getJmxConnector(),mBeanQuery);
+                        //若tomcat服务器运行了springMVC的应用，必须要过滤有以下字符串的mBean，否则可能会导致tomcat中的应用启动失败
+                        beanSet = beanSet.stream()
+                                .filter(mbean -> {
+                                    String objectName = mbean.getObjectName().toString();
+                                    if (objectName.contains("j2eeType=Servlet")){
+                                        return false;
+                                    }else if(objectName.contains("java.lang:type=Memory") ||
+                                            objectName.contains("java.lang:type=MemoryPool,name=Metaspace")){
+                                        return true;
+                                    }else if (objectName.contains("java.lang:type=GarbageCollector")){
+                                        return true;
+                                    }else{
+                                        for (JMXMetricsConfiguration configuration : jmxMetricsConfigurationSet) {
+                                            if(objectName.contains(configuration.getObjectName())){
+                                                return true;
                                             }
                                         }
                                     }
+                                    return false;
+                                })
+                                .collect(Collectors.toSet());
+
+                        if (!blockingQueue4BeanSet.offer(beanSet)){
+                            log.error("JMX {} 的objectNameList对象offer失败",connectionInfo.toString());
+                        }
+                    } catch (Throwable t) {
+                        blockingQueue4BeanSet.offer(t);
+                    }
+                });
+
+                //超时15秒
+                Object resultBeanSet = BlockingQueueUtil.getResult(blockingQueue4BeanSet, beanSetTimeout, TimeUnit.MILLISECONDS);
+                blockingQueue4BeanSet.clear();
+                if(resultBeanSet == null){
+                    beanSetTask.cancel(true);
+                    if(beanSetTimeout < objectNameListTimeout * 1000L){
+                        throw new CollectTruncatedException();
+                    }
+                }
 
-                                    jmxObjectNameInfo.setMetricsValue(map);
+                if(resultBeanSet instanceof Set){
+                    Set<ObjectInstance> beanSet = (Set<ObjectInstance>) resultBeanSet;
+                    //记录指标采集过程中，有异常的指标
+                    List<JMXUnavailabilityException> mBeanValueGetExceptions = new ArrayList<>();
 
-                                    if (!blockingQueue4BeanValue.offer(jmxObjectNameInfo)){
-                                        log.error("mbean {} 的值集合offer失败",mbean.toString());
+                    for (ObjectInstance mbean : beanSet) {
+                        if(deadline.isExpired()){
+                            throw new CollectTruncatedException();
+                        }
+                        //阻塞队列异步执行
+                        long mBeanValueTimeout = deadline.timeout(mBeanTimeout * 1000L);
+                        Future<?> mBeanValueTask = bulkhead.submit(() -> {
+                            try {
+                                Map<String,Object> map = new HashMap<>();
+                                JMXObjectNameInfo jmxObjectNameInfo = new JMXObjectNameInfo();
+                                ObjectName objectName = mbean.getObjectName();
+                                jmxObjectNameInfo.setObjectName(objectName);
+                                jmxObjectNameInfo.setJmxConnectionInfo(connectionInfo);
+                                try {
+                                    //一次RMI调用读取需要的属性,超时由上层等待该任务的超时时间控制
+                                    String[] attributeNames = projection.attributes(objectName);
+                                    if(attributeNames.length > 0){
+                                        readAttributes(connectionInfo.getMBeanServerConnection(),objectName,attributeNames,map);
+                                    }
+                                } catch (Exception e) {
+                                    List<Throwable> throwables = ExceptionUtil.getExceptionCauses(e);
+                                    for (Throwable throwable : throwables) {
+                                        if (throwable != null &&
+                                                throwable.getClass() == java.net.ConnectException.class){
+                                            throw new JMXUnavailabilityException(JMXUnavailabilityType.connectionFailed,e);
+                                        }
                                     }
-                                } catch (Throwable t) {
-                                    blockingQueue4BeanValue.offer(t);
                                 }
-                            });
 
-                            //超时15秒
-                            Object resultOni = BlockingQueueUtil.getResult(blockingQueue4BeanValue, mBeanTimeout, TimeUnit.SECONDS);
-                            blockingQueue4BeanValue.clear();
+                                jmxObjectNameInfo.setMetricsValue(map);
 
-                            if(resultOni instanceof JMXObjectNameInfo){
-                                JMXObjectNameInfo jmxObjectNameInfo = (JMXObjectNameInfo) resultOni;
-                                objectNameList.add(jmxObjectNameInfo);
-                            }else if(resultOni == null){
-                                if(!mbean.toString().contains("java.lang:type=Runtime")){//排除Runtime超时
-                                    mBeanValueGetExceptions.add(new JMXUnavailabilityException(JMXUnavailabilityType.getMbeanValueTimeout,String.format("mbean %s 的值集合获取失败：超时%d秒",mbean.toString(), mBeanTimeout)));
-                                }
-                            }else if(resultOni instanceof JMXUnavailabilityException){
-                                throw (JMXUnavailabilityException) resultOni;
-                            }else if (resultOni instanceof Throwable){
-                                if (((Throwable) resultOni).getMessage().contains("Connection refused")){
-                                    // 连接失败，直接抛出异常
-                                    throw (Exception) resultOni;
+                                if (!blockingQueue4BeanValue.offer(jmxObjectNameInfo)){
+                                    log.error("mbean {} 的值集合offer失败",mbean.toString());
                                 }
-                                throw new JMXUnavailabilityException(JMXUnavailabilityType.getMbeanValueException,String.format("mbean %s 的值集合获取异常",mbean.toString()), (Exception) resultOni);
-                            }else {
-                                throw new JMXUnavailabilityException(JMXUnavailabilityType.unKnown,"未匹配到的数据：" + resultOni);
+                            } catch (Throwable t) {
+                                blockingQueue4BeanValue.offer(t);
                             }
-                        }
+                        });
 
-                        if(!mBeanValueGetExceptions.isEmpty()){
-                            //统一抛出mBean值超时异常
-                            throw new JMXUnavailabilityException((mBeanValueGetExceptions));
+                        //超时15秒
+                        Object resultOni = BlockingQueueUtil.getResult(blockingQueue4BeanValue, mBeanValueTimeout, TimeUnit.MILLISECONDS);
+                        blockingQueue4BeanValue.clear();
+                        if(resultOni == null){
+                            mBeanValueTask.cancel(true);
+                            if(mBeanValueTimeout < mBeanTimeout * 1000L){
+                                throw new CollectTruncatedException();
+                            }
                         }
 
-                        validCount++;
-                    }else if (resultBeanSet == null){
-                        throw new JMXUnavailabilityException(JMXUnavailabilityType.getObjectNameListTimeout,String.format("JMX %s 的objectNameList对象获取失败：超时%d秒",connectionInfo.toString(), objectNameListTimeout));
-                    }else if (resultBeanSet instanceof Throwable){
-                        if (((Throwable) resultBeanSet).getMessage().contains("Connection refused")){
-                            // 连接失败，直接抛出异常
-                            throw (Exception) resultBeanSet;
+                        if(resultOni instanceof JMXObjectNameInfo){
+                            JMXObjectNameInfo jmxObjectNameInfo = (JMXObjectNameInfo) resultOni;
+                            objectNameList.add(jmxObjectNameInfo);
+                        }else if(resultOni == null){
+                            if(!mbean.toString().contains("java.lang:type=Runtime")){//排除Runtime超时
+                                mBeanValueGetExceptions.add(new JMXUnavailabilityException(JMXUnavailabilityType.getMbeanValueTimeout,String.format("mbean %s 的值集合获取失败：超时%d秒",mbean.toString(), mBeanTimeout)));
+                            }
+                        }else if(resultOni instanceof JMXUnavailabilityException){
+                            throw (JMXUnavailabilityException) resultOni;
+                        }else if (resultOni instanceof Throwable){
+                            if (((Throwable) resultOni).getMessage().contains("Connection refused")){
+                                // 连接失败，直接抛出异常
+                                throw (Exception) resultOni;
+                            }
+                            throw new JMXUnavailabilityException(JMXUnavailabilityType.getMbeanValueException,String.format("mbean %s 的值集合获取异常",mbean.toString()), (Exception) resultOni);
+                        }else {
+                            throw new JMXUnavailabilityException(JMXUnavailabilityType.unKnown,"未匹配到的数据：" + resultOni);
                         }
-                        throw new JMXUnavailabilityException(JMXUnavailabilityType.getObjectNameListException,String.format("JMX %s 的objectNameList对象获取异常：%s",connectionInfo.toString(),resultBeanSet.toString()));
-                    }else {
-                        throw new JMXUnavailabilityException(JMXUnavailabilityType.unKnown,"未匹配到的数据：" + resultBeanSet);
                     }
 
-                } catch (Exception e) {
-                    if (e instanceof JMXUnavailabilityException){
-                        // JMX连接异常，报告不可用,将会在下一次获取连接时进行维护
-                        //JMX连接异常，报告不可用,将会在下一次获取连接时进行维护
-                        if(((JMXUnavailabilityException) e).getExceptions() == null){
-                            log.error("JMXUnavailabilityException(Effect availability To false)",e);
-                        }else {
-                            log.error("获取MBean值超时的对象：{}",((JMXUnavailabilityException) e).getExceptions());
-                        }
-                        connectionInfo.setValid(false,((JMXUnavailabilityException) e).getType());
+                    if(!mBeanValueGetExceptions.isEmpty()){
+                        //统一抛出mBean值超时异常
+                        throw new JMXUnavailabilityException((mBeanValueGetExceptions));
+                    }
+
+                    validCount.increment();
+                }else if (resultBeanSet == null){
+                    throw new JMXUnavailabilityException(JMXUnavailabilityType.getObjectNameListTimeout,String.format("JMX %s 的objectNameList对象获取失败：超时%d秒",connectionInfo.toString(), objectNameListTimeout));
+                }else if (resultBeanSet instanceof Throwable){
+                    if (((Throwable) resultBeanSet).getMessage().contains("Connection refused")){
+                        // 连接失败，直接抛出异常
+                        throw (Exception) resultBeanSet;
+                    }
+                    throw new JMXUnavailabilityException(JMXUnavailabilityType.getObjectNameListException,String.format("JMX %s 的objectNameList对象获取异常：%s",connectionInfo.toString(),resultBeanSet.toString()));
+                }else {
+                    throw new JMXUnavailabilityException(JMXUnavailabilityType.unKnown,"未匹配到的数据：" + resultBeanSet);
+                }
+
+            } catch (CollectTruncatedException e) {
+                //预算耗尽,上报已获取的部分结果,连接本身可用
+                truncated = true;
+                validCount.increment();
+            } catch (RejectedExecutionException e) {
+                //插件自身的执行队列已满,不是连接的问题:连接计为可用,避免重建连接,上报部分结果
+                log.warn("插件 {} 的执行队列已满,JMX {} 本次采集被拒绝",jmxPlugin.pluginName(),connectionInfo.toString());
+                truncated = true;
+                validCount.increment();
+            } catch (Exception e) {
+                if (e instanceof JMXUnavailabilityException){
+                    // JMX连接异常，报告不可用,将会在下一次获取连接时进行维护
+                    //JMX连接异常，报告不可用,将会在下一次获取连接时进行维护
+                    if(((JMXUnavailabilityException) e).getExceptions() == null){
+                        log.error("JMXUnavailabilityException(Effect availability To false)",e);
                     }else {
-                        log.error("采集异常",e);
-                        connectionInfo.setValid(false,null);
+                        log.error("获取MBean值超时的对象：{}",((JMXUnavailabilityException) e).getExceptions());
                     }
-                }finally {
-                    //设置返回对象-添加监控值对象
-                    jmxMetricsValueInfo.setJmxObjectNameInfoList(objectNameList);
-                    jmxMetricsValueInfo.setJmxConnectionInfo(connectionInfo);
-                    jmxMetricsValueInfoList.add(jmxMetricsValueInfo);
+                    connectionInfo.setValid(false,((JMXUnavailabilityException) e).getType());
+                }else {
+                    log.error("采集异常",e);
+                    connectionInfo.setValid(false,null);
                 }
-            }else{
-                //设置返回对象-添加监控值对象,连接不可用也需要返回,以便于构建连接不可用的报告对象
+            }finally {
+                //设置返回对象-添加监控值对象
+                jmxMetricsValueInfo.setTruncated(truncated);
+                jmxMetricsValueInfo.setJmxObjectNameInfoList(objectNameList);
                 jmxMetricsValueInfo.setJmxConnectionInfo(connectionInfo);
-                try {
-                    connectionInfo.getJmxConnector().getConnectionId();
-                } catch (Exception e) {
-                    //精确不可用类型值
-                    if("Not connected".equals(e.getMessage())){
-                        if(connectionInfo.getType() != null){
-                            //若JMX未未连接，设置不可用值为0
-                            connectionInfo.setValid(false,null);
-                        }
+            }
+        }else{
+            //设置返回对象-添加监控值对象,连接不可用也需要返回,以便于构建连接不可用的报告对象
+            jmxMetricsValueInfo.setJmxConnectionInfo(connectionInfo);
+            try {
+                connectionInfo.getJmxConnector().getConnectionId();
+            } catch (Exception e) {
+                //精确不可用类型值
+                if("Not connected".equals(e.getMessage())){
+                    if(connectionInfo.getType() != null){
+                        //若JMX未未连接，设置不可用值为0
+                        connectionInfo.setValid(false,null);
                     }
                 }
-                jmxMetricsValueInfoList.add(jmxMetricsValueInfo);
             }
         }
+        return jmxMetricsValueInfo;
+    }
 
-        //若JMX可用的连接数小于该服务应有的JMX连接数,则进行尝试重新构建连接
-        //将会在下一次获取监控值时生效
-        if(validCount < (JMXConnection.getServerConnectCount(serverName) + commandInfoList.size())){
-//            if (resetCount >= 100){//该服务超过100次重置操作，强制重置该服务连接状态
-//                jmxConnection.resetMBeanConnection(true);
-//            }
-            log.error("发现服务{}有缺失的JMX连接,尝试重新构建该服务的jmx连接",serverName);
-            jmxConnection.resetMBeanConnection();
+    /**
+     * 没有采集结果的连接的监控值对象
+     * @param connectionInfo
+     * @param timestamp
+     * @param jmxMetricsConfigurationSet
+     * @return
+     */
+    private static JMXMetricsValueInfo newValueInfo(JMXConnectionInfo connectionInfo, long timestamp, Set<JMXMetricsConfiguration> jmxMetricsConfigurationSet){
+        JMXMetricsValueInfo jmxMetricsValueInfo = new JMXMetricsValueInfo();
+        jmxMetricsValueInfo.setTimestamp(timestamp);
+        jmxMetricsValueInfo.setJmxMetricsConfigurations(jmxMetricsConfigurationSet);
+        jmxMetricsValueInfo.setJmxObjectNameInfoList(new ArrayList<>());
+        jmxMetricsValueInfo.setJmxConnectionInfo(connectionInfo);
+        return jmxMetricsValueInfo;
+    }
+
+    /**
+     * 超出时间预算仍未完成采集的连接的监控值对象,连接本身可用
+     * @param connectionInfo
+     * @param timestamp
+     * @param jmxMetricsConfigurationSet
+     * @return
+     */
+    private static JMXMetricsValueInfo truncatedValueInfo(JMXConnectionInfo connectionInfo, long timestamp, Set<JMXMetricsConfiguration> jmxMetricsConfigurationSet){
+        JMXMetricsValueInfo jmxMetricsValueInfo = newValueInfo(connectionInfo,timestamp,jmxMetricsConfigurationSet);
+        jmxMetricsValueInfo.setTruncated(true);
+        return jmxMetricsValueInfo;
+    }
+
+    /**
+     * 读取mBean的指定属性
+     * 通过一次 getAttributes 批量读取;不存在或读取失败的属性不会出现在返回结果中,不影响其他属性。
+     * 批量读取异常时(如个别MBean实现不支持),退回到逐个属性读取
+     * @param connection
+     * @param objectName
+     * @param names
+     * 属性名
+     * @param values
+     * 属性名到属性值的映射
+     * @throws IOException
+     * 连接异常
+     */
+    private static void readAttributes(MBeanServerConnection connection, ObjectName objectName, String[] names, Map<String,Object> values) throws IOException {
+        AttributeList attributes;
+        try {
+            attributes = connection.getAttributes(objectName,names);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("mbean {} 批量读取属性异常,逐个读取",objectName,e);
+            for (String name : names) {
+                try {
+                    values.put(name,connection.getAttribute(objectName,name));
+                } catch (IOException ioe) {
+                    throw ioe;
+                } catch (Exception ignored) {
+                    //跳过读取失败的属性
+                }
+            }
+            return;
+        }
+        for (Attribute attribute : attributes.asList()) {
+            values.put(attribute.getName(),attribute.getValue());
         }
+    }
 
-        return jmxMetricsValueInfoList;
+    /**
+     * 本次采集的时间预算已耗尽
+     */
+    private static class CollectTruncatedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        CollectTruncatedException() {
+            super(null,null,false,false);
+        }
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.jmx;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:49 创建
+ */
+
+import com.falcon.suitagent.vo.jmx.JMXMetricsConfiguration;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JMX插件查询mBean的ObjectName模式
+ * 监控项配置的objectName按包含关系匹配mBean,此处将其编译为服务端执行的ObjectName模式:
+ * 域名前加 * ,最后一个属性值后加 * ,并追加属性列表通配 ,* 。模式的匹配范围不小于原有的包含匹配,
+ * 查询结果仍由调用方按原有规则精确过滤。无法编译的配置(如不含域名、属性值带引号)退回到查询全部mBean。
+ * 每个插件缓存一个实例,监控项配置变化时重新编译。
+ * @author agent@local
+ */
+@Slf4j
+public final class MBeanQuery {
+
+    /**
+     * 内置指标需要的mBean
+     */
+    private static final String[] INBUILT = {
+            "java.lang:type=Memory",
+            "java.lang:type=MemoryPool,name=Metaspace",
+            "java.lang:type=GarbageCollector"
+    };
+
+    private static final Map<String,MBeanQuery> QUERIES = new ConcurrentHashMap<>();
+
+    private final String signature;
+    private final List<ObjectName> patterns;
+    /**
+     * 是否需要查询全部mBean
+     */
+    private final boolean fullScan;
+
+    private MBeanQuery(String signature, Collection<String> objectNames) {
+        this.signature = signature;
+        Set<ObjectName> patterns = new LinkedHashSet<>();
+        boolean fullScan = false;
+        for (String objectName : objectNames) {
+            ObjectName pattern = compile(objectName);
+            if(pattern == null){
+                log.warn("监控项配置的objectName {} 无法转换为查询模式,将查询全部mBean",objectName);
+                fullScan = true;
+                break;
+            }
+            patterns.add(pattern);
+        }
+        this.fullScan = fullScan;
+        this.patterns = fullScan ? Collections.emptyList() : new ArrayList<>(patterns);
+    }
+
+    /**
+     * 获取插件的mBean查询,监控项配置未变化时返回缓存的实例
+     * @param pluginName
+     * @param configurations
+     * 插件的监控项配置
+     * @return
+     */
+    public static MBeanQuery of(String pluginName, Collection<JMXMetricsConfiguration> configurations){
+        TreeSet<String> objectNames = new TreeSet<>(Arrays.asList(INBUILT));
+        for (JMXMetricsConfiguration configuration : configurations) {
+            if(configuration.getObjectName() != null){
+                objectNames.add(configuration.getObjectName());
+            }
+        }
+        String signature = String.join("\u0001",objectNames);
+        MBeanQuery query = QUERIES.get(pluginName);
+        if(query == null || !query.signature.equals(signature)){
+            query = new MBeanQuery(signature,objectNames);
+            QUERIES.put(pluginName,query);
+        }
+        return query;
+    }
+
+    /**
+     * 将按包含关系匹配的objectName编译为ObjectName模式
+     * @param objectName
+     * @return
+     * 无法编译时返回null
+     */
+    static ObjectName compile(String objectName){
+        String name = objectName.trim();
+        int colon = name.indexOf(':');
+        //带引号的属性值可能包含逗号,不做转换
+        if(colon <= 0 || name.contains("\"")){
+            return null;
+        }
+        String domain = name.substring(0,colon);
+        List<String> properties = new ArrayList<>();
+        for (String property : name.substring(colon + 1).split(",")) {
+            if(!property.isEmpty()){
+                properties.add(property);
+            }
+        }
+        //最后一个属性可能只是键或值的前缀
+        if(!properties.isEmpty()){
+            String last = properties.remove(properties.size() - 1);
+            int eq = last.indexOf('=');
+            if(eq > 0 && !last.endsWith("*")){
+                properties.add(last + "*");
+            }else if(eq > 0){
+                properties.add(last);
+            }
+        }
+        StringBuilder pattern = new StringBuilder();
+        pattern.append(domain.startsWith("*") ? "" : "*").append(domain).append(':');
+        for (String property : properties) {
+            pattern.append(property).append(',');
+        }
+        pattern.append('*');
+        try {
+            return new ObjectName(pattern.toString());
+        } catch (MalformedObjectNameException e) {
+            return null;
+        }
+    }
+
+    /**
+     * mBean是否可能在查询结果中
+     * @param objectName
+     * @return
+     */
+    public boolean matches(ObjectName objectName){
+        if(fullScan){
+            return true;
+        }
+        for (ObjectName pattern : patterns) {
+            if(pattern.apply(objectName)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    List<ObjectName> getPatterns() {
+        return patterns;
+    }
+
+    boolean isFullScan() {
+        return fullScan;
+    }
+}
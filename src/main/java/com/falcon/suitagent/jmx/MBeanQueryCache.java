@@ -0,0 +1,133 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.jmx;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:49 创建
+ */
+
+import com.falcon.suitagent.falcon.AgentMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.*;
+import javax.management.relation.MBeanServerNotificationFilter;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMX连接的mBean查询结果缓存
+ * 首次查询时在目标JVM的 {@link MBeanServerDelegate} 上注册mBean注册/注销通知的监听,
+ * 查询结果一直复用到有匹配查询模式的mBean注册或注销、通知丢失或连接关闭为止,稳定状态下每个采集周期不再重新列举mBean。
+ * 监听注册失败时(如无权限)不缓存,每次都重新查询。
+ * @author agent@local
+ */
+@Slf4j
+public class MBeanQueryCache implements NotificationListener {
+
+    /**
+     * 所有连接向目标JVM发起的mBean查询次数(累计)
+     */
+    private static final AtomicLong QUERIES = new AtomicLong();
+
+    static {
+        AgentMetrics.counter("jmx.mbean.query",null,QUERIES::get);
+    }
+
+    /**
+     * 已注册监听的连接,为null时表示尚未注册
+     */
+    private MBeanServerConnection listening;
+    private boolean listenerFailed;
+    private volatile MBeanQuery query;
+    private volatile Set<ObjectInstance> beans;
+    /**
+     * 缓存失效的次数,用于丢弃查询期间已失效的结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 查询连接中可能需要采集的mBean
+     * @param connection
+     * @param connector
+     * 连接的JMXConnector,用于监听通知丢失,可以为null
+     * @param query
+     * @return
+     * 不可修改的查询结果,未经监控项配置的精确过滤
+     * @throws IOException
+     */
+    public synchronized Set<ObjectInstance> query(MBeanServerConnection connection, JMXConnector connector, MBeanQuery query) throws IOException {
+        if(connection != listening && !listenerFailed){
+            listen(connection,connector);
+        }
+        Set<ObjectInstance> cached = beans;
+        if(cached != null && connection == listening && this.query == query){
+            return cached;
+        }
+        long current = generation.get();
+        Set<ObjectInstance> result;
+        if(query.isFullScan()){
+            QUERIES.incrementAndGet();
+            result = connection.queryMBeans(null,null);
+        }else{
+            result = new HashSet<>();
+            for (ObjectName pattern : query.getPatterns()) {
+                QUERIES.incrementAndGet();
+                result.addAll(connection.queryMBeans(pattern,null));
+            }
+        }
+        result = Collections.unmodifiableSet(result);
+        this.query = query;
+        if(connection == listening && generation.get() == current){
+            beans = result;
+        }
+        return result;
+    }
+
+    private void listen(MBeanServerConnection connection, JMXConnector connector){
+        try {
+            MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.enableAllObjectNames();
+            connection.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME,this,filter,null);
+            if(connector != null){
+                connector.addConnectionNotificationListener(this,null,null);
+            }
+            listening = connection;
+            invalidate();
+        } catch (Exception e) {
+            log.warn("mBean注册通知监听失败,每次采集将重新查询mBean: {}",e.getMessage());
+            listenerFailed = true;
+            listening = null;
+            invalidate();
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if(notification instanceof MBeanServerNotification){
+            MBeanQuery current = query;
+            if(current == null || current.matches(((MBeanServerNotification) notification).getMBeanName())){
+                invalidate();
+            }
+        }else if(notification instanceof JMXConnectionNotification){
+            //通知丢失、连接失败或关闭时无法确定缓存是否有效
+            if(!JMXConnectionNotification.OPENED.equals(notification.getType())){
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * 使缓存失效,下次查询时重新列举mBean
+     */
+    public void invalidate(){
+        generation.incrementAndGet();
+        beans = null;
+    }
+}
@@ -5,6 +5,7 @@
 package com.falcon.suitagent.jmx.vo;
 
 import com.falcon.suitagent.jmx.JMXManager;
+import com.falcon.suitagent.jmx.MBeanQueryCache;
 import com.falcon.suitagent.plugins.JMXPlugin;
 import com.falcon.suitagent.util.ExecuteThreadUtil;
 import com.falcon.suitagent.exception.JMXUnavailabilityType;
@@ -59,10 +60,17 @@ public class JMXConnectionInfo {
     @Getter
     private JMXUnavailabilityType type;
 
+    /**
+     * 此连接的mBean查询结果缓存
+     */
+    @Getter
+    private final MBeanQueryCache mBeanQueryCache = new MBeanQueryCache();
+
     /**
      * 关闭JMX连接
      */
     public void closeJMXConnector(){
+        mBeanQueryCache.invalidate();
         ExecuteThreadUtil.execute(() -> {
             if(jmxConnector != null){
                 try {
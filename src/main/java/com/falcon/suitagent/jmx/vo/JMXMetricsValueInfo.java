@@ -38,4 +38,9 @@ public class JMXMetricsValueInfo {
      */
     private JMXConnectionInfo jmxConnectionInfo;
 
+    /**
+     * 是否因超出时间预算而只获取了部分mBean的值
+     */
+    private boolean truncated;
+
 }
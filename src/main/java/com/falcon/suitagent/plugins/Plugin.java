@@ -79,6 +79,18 @@ public interface Plugin {
      */
     int step();
 
+    /**
+     * 周期内的采样间隔(秒)
+     * 大于0时插件将以此间隔进行采样,每个step只上报一次,并附加 .max 、.p95 等汇总指标(见 agent.sample.rollups 配置),
+     * 用于发现step内的短时尖峰。必须小于step且能整除step,小于60时还必须能整除60。
+     * 也可通过插件配置文件中的 sampleInterval 配置项指定,配置项优先
+     * @return
+     * 默认为0,不进行采样
+     */
+    default int sampleInterval(){
+        return 0;
+    }
+
     /**
      * 插件运行方式
      * @return
@@ -8,31 +8,33 @@ package com.falcon.suitagent.plugins.job;
  * guqiu@yiji.com 2016-07-22 11:00 创建
  */
 
+import com.falcon.suitagent.common.AgentJob;
 import com.falcon.suitagent.util.ExecuteThreadUtil;
 import com.falcon.suitagent.plugins.DetectPlugin;
 import com.falcon.suitagent.plugins.metrics.DetectMetricsValue;
 import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import com.falcon.suitagent.plugins.metrics.SampleRollup;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Job;
 import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author guqiu@yiji.com
  */
 @Slf4j
-public class DetectPluginJob implements Job {
+public class DetectPluginJob implements AgentJob {
     @Override
-    public void execute(JobExecutionContext context) throws JobExecutionException {
+    public void execute(JobDataMap jobDataMap) {
         long timestamp = System.currentTimeMillis() / 1000;
-        JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
         String pluginName = jobDataMap.getString("pluginName");
         try {
             DetectPlugin detectPlugin = (DetectPlugin) jobDataMap.get("pluginObject");
             MetricsCommon metricsValue = new DetectMetricsValue(detectPlugin,timestamp);
             //可能会涉及到外网的连接,采用异步方式
-            ExecuteThreadUtil.execute(new JobThread(metricsValue,"detect job thread"));
+            ExecuteThreadUtil.bulkhead(detectPlugin.pluginName()).execute(new JobThread(metricsValue,(SampleRollup) jobDataMap.get(SampleRollup.JOB_DATA_KEY),"detect job thread"));
+        } catch (RejectedExecutionException e) {
+            log.warn("插件 {} 的执行队列已满,本次采集被拒绝",pluginName);
         } catch (Exception e) {
             log.error("插件 {} 运行异常",pluginName,e);
         }
@@ -8,31 +8,28 @@ package com.falcon.suitagent.plugins.job;
  * guqiu@yiji.com 2016-06-28 10:45 创建
  */
 
-import com.falcon.suitagent.falcon.ReportMetrics;
+import com.falcon.suitagent.common.AgentJob;
 import com.falcon.suitagent.plugins.JDBCPlugin;
 import com.falcon.suitagent.plugins.metrics.JDBCMetricsValue;
 import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import com.falcon.suitagent.plugins.metrics.SampleRollup;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Job;
 import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
 
 /**
  * @author guqiu@yiji.com
  */
 @Slf4j
-public class JDBCPluginJob implements Job{
+public class JDBCPluginJob implements AgentJob {
 
     @Override
-    public void execute(JobExecutionContext context) throws JobExecutionException {
+    public void execute(JobDataMap jobDataMap) {
         long timestamp = System.currentTimeMillis() / 1000;
-        JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
         String pluginName = jobDataMap.getString("pluginName");
         try {
             JDBCPlugin jdbcPlugin = (JDBCPlugin) jobDataMap.get("pluginObject");
             MetricsCommon jdbcMetricsValue = new JDBCMetricsValue(jdbcPlugin,timestamp);
-            ReportMetrics.push(jdbcMetricsValue.getReportObjects());
+            SampleRollup.push(jobDataMap,jdbcMetricsValue.getReportObjects());
         } catch (Exception e) {
             log.error("插件 {} 运行异常",pluginName,e);
         }
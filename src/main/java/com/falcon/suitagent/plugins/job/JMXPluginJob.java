@@ -8,19 +8,17 @@ package com.falcon.suitagent.plugins.job;
  * guqiu@yiji.com 2016-06-24 13:42 创建
  */
 
+import com.falcon.suitagent.common.AgentJob;
 import com.falcon.suitagent.config.AgentConfiguration;
 import com.falcon.suitagent.plugins.JMXPlugin;
 import com.falcon.suitagent.plugins.metrics.JMXMetricsValue;
-import com.falcon.suitagent.falcon.ReportMetrics;
 import com.falcon.suitagent.jmx.JMXManager;
 import com.falcon.suitagent.jmx.vo.JMXMetricsValueInfo;
 import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import com.falcon.suitagent.plugins.metrics.SampleRollup;
 import com.falcon.suitagent.vo.jmx.JavaExecCommandInfo;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Job;
 import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,11 +27,10 @@ import java.util.List;
  * @author guqiu@yiji.com
  */
 @Slf4j
-public class JMXPluginJob implements Job {
+public class JMXPluginJob implements AgentJob {
 
     @Override
-    public void execute(JobExecutionContext context) throws JobExecutionException {
-        JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
+    public void execute(JobDataMap jobDataMap) {
         String pluginName = jobDataMap.getString("pluginName");
         try {
             JMXPlugin jmxPlugin = (JMXPlugin) jobDataMap.get("pluginObject");
@@ -59,7 +56,7 @@ public class JMXPluginJob implements Job {
             }
 
             MetricsCommon jmxMetricsValue = new JMXMetricsValue(jmxPlugin,jmxMetricsValueInfos);
-            ReportMetrics.push(jmxMetricsValue.getReportObjects());
+            SampleRollup.push(jobDataMap,jmxMetricsValue.getReportObjects());
         } catch (Exception e) {
             log.error("插件 {} 运行异常",pluginName,e);
         }
@@ -8,8 +8,8 @@ package com.falcon.suitagent.plugins.job;
  * guqiu@yiji.com 2016-07-15 13:46 创建
  */
 
-import com.falcon.suitagent.falcon.ReportMetrics;
 import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import com.falcon.suitagent.plugins.metrics.SampleRollup;
 
 /**
  * @author guqiu@yiji.com
@@ -17,12 +17,25 @@ import com.falcon.suitagent.plugins.metrics.MetricsCommon;
 public class JobThread extends Thread {
 
     private MetricsCommon metricsValue;
+    private SampleRollup sampleRollup;
 
     public JobThread(MetricsCommon metricsValue, String threadName) {
         this.metricsValue = metricsValue;
         this.setName(threadName);
     }
 
+    /**
+     * @param metricsValue
+     * @param sampleRollup
+     * 插件job的采样汇总对象,为null时直接上报
+     * @param threadName
+     */
+    public JobThread(MetricsCommon metricsValue, SampleRollup sampleRollup, String threadName) {
+        this.metricsValue = metricsValue;
+        this.sampleRollup = sampleRollup;
+        this.setName(threadName);
+    }
+
     public JobThread(MetricsCommon metricsValue) {
         this.metricsValue = metricsValue;
     }
@@ -40,6 +53,6 @@ public class JobThread extends Thread {
      */
     @Override
     public void run() {
-        ReportMetrics.push(metricsValue.getReportObjects());
+        SampleRollup.push(sampleRollup,metricsValue.getReportObjects());
     }
 }
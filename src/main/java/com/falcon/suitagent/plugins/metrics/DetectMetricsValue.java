@@ -65,7 +65,7 @@ public class DetectMetricsValue extends MetricsCommon {
                             FalconReportObject reportObject = new FalconReportObject();
                             reportObject.setMetric(getMetricsName(metric.metricName));
                             reportObject.setCounterType(metric.counterType);
-                            reportObject.setValue(metric.value);
+                            metric.applyValue(reportObject);
                             reportObject.setTimestamp(timestamp);
                             //打默认tag
                             reportObject.appendTags(getTags(detectPlugin.agentSignName(address),detectPlugin,detectPlugin.serverName()))
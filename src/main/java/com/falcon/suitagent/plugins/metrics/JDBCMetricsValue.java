@@ -13,7 +13,6 @@ import com.falcon.suitagent.util.PropertiesUtil;
 import com.falcon.suitagent.util.StringUtils;
 import com.falcon.suitagent.vo.jdbc.JDBCConnectionInfo;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.math.NumberUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -150,13 +149,13 @@ public class JDBCMetricsValue extends MetricsCommon {
                         try {
                             String metricsValue = getMetricsValue(entry.getValue(), connection);
                             if (!StringUtils.isEmpty(metricsValue)) {
-                                if (!NumberUtils.isNumber(metricsValue)) {
+                                FalconReportObject reportObject = new FalconReportObject();
+                                reportObject.setValue(metricsValue);
+                                if (!reportObject.isNumeric()) {
                                     log.error("JDBC {} 的监控指标:{} 的值:{} ,不能转换为数字,将跳过此监控指标", jdbcPlugin.serverName(), entry.getKey(), metricsValue);
                                 } else {
-                                    FalconReportObject reportObject = new FalconReportObject();
                                     reportObject.setMetric(getMetricsName(entry.getKey()));
                                     reportObject.setCounterType(CounterType.GAUGE);
-                                    reportObject.setValue(metricsValue);
                                     reportObject.setTimestamp(timestamp);
                                     reportObject.appendTags(getTags(jdbcPlugin.agentSignName(), jdbcPlugin, jdbcPlugin.serverName()));
                                     addURLTag(reportObject, connectionInfo);
@@ -205,19 +204,19 @@ public class JDBCMetricsValue extends MetricsCommon {
                             reportObject.setCounterType(CounterType.COUNTER);
                             counterObj.add(reportObject);
                         }
-                        if (MYSQL_RALATIVE_METRICS.contains(metrics)){
+                        if (MYSQL_RALATIVE_METRICS.contains(metrics) && falconReportObject.isNumeric()){
                             Number previousValue = metricsHistoryValueForRelative.get(metricsKey);
+                            double currentValue = falconReportObject.getDoubleValue();
                             if (previousValue == null){
-                                previousValue = NumberUtils.createNumber(falconReportObject.getValue());
                                 //保存此次的值
-                                metricsHistoryValueForRelative.put(metricsKey,previousValue);
+                                metricsHistoryValueForRelative.put(metricsKey,currentValue);
                             }else {
                                 FalconReportObject reportObject = falconReportObject.clone();
                                 reportObject.setMetric(metrics + "_Relative");
                                 //添加本次与上一次监控值的相对值
-                                reportObject.setValue(String.valueOf(Maths.sub(NumberUtils.createDouble(falconReportObject.getValue()),previousValue.doubleValue())));
+                                reportObject.setValue(Maths.sub(currentValue,previousValue.doubleValue()));
                                 //保存此次监控值为历史值
-                                metricsHistoryValueForRelative.put(metricsKey,NumberUtils.createDouble(falconReportObject.getValue()));
+                                metricsHistoryValueForRelative.put(metricsKey,currentValue);
                                 counterObj.add(reportObject);
                             }
                         }
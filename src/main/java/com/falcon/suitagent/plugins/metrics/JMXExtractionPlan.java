@@ -0,0 +1,238 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.plugins.metrics;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:55 创建
+ */
+
+import com.falcon.suitagent.falcon.CounterType;
+import com.falcon.suitagent.falcon.FalconReportObject;
+import com.falcon.suitagent.jmx.vo.JMXMetricsValueInfo;
+import com.falcon.suitagent.jmx.vo.JMXObjectNameInfo;
+import com.falcon.suitagent.plugins.JMXPlugin;
+import com.falcon.suitagent.util.StringUtils;
+import com.falcon.suitagent.vo.jmx.JMXMetricsConfiguration;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.ObjectName;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * JMX监控值的提取计划
+ * 每个插件的每个JMX连接(JVM)一个实例:监控项配置预先编译为报告模板(metric、counterType、tags、值转换),
+ * 每个mBean匹配的模板在首次遇到该mBean时确定并缓存,采集周期内只需按ObjectName查找模板并填入采集到的值,
+ * 而不必将所有监控项配置与所有mBean逐一匹配。
+ * 监控项配置或连接的tags变化时重新生成;完整采集的周期中不再出现的mBean的模板被移除。
+ * @author agent@local
+ */
+@Slf4j
+final class JMXExtractionPlan {
+
+    /**
+     * 缓存的计划最大个数
+     */
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    private static final Map<String,JMXExtractionPlan> PLANS = new ConcurrentHashMap<>();
+
+    private final Set<JMXMetricsConfiguration> configurations;
+    private final String tags;
+    private final int step;
+    /**
+     * 每个监控项配置的报告模板,下标与监控项配置一一对应
+     */
+    private final Template[] configTemplates;
+    /**
+     * metrics属性名的分组个数
+     */
+    private final int groupCount;
+    private final Map<ObjectName,Template[]> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 一个监控项配置的报告模板
+     */
+    private static final class Template {
+        int index;
+        JMXMetricsConfiguration configuration;
+        String metric;
+        /**
+         * 配置错误时为null,只统计是否采集到,不生成报告
+         */
+        CounterType counterType;
+        String tags;
+        /**
+         * metrics属性名的分组,同一属性名在多个mBean上采集到值时,报告以ObjectName区分
+         */
+        int group;
+        Function<Object,Object> transform;
+    }
+
+    private JMXExtractionPlan(Set<JMXMetricsConfiguration> configurations, String tags, int step) {
+        this.configurations = configurations;
+        this.tags = tags;
+        this.step = step;
+        this.configTemplates = new Template[configurations.size()];
+        Map<String,Integer> groups = new HashMap<>();
+        int i = 0;
+        for (JMXMetricsConfiguration configuration : configurations) {
+            Template template = new Template();
+            template.index = i;
+            template.configuration = configuration;
+            template.metric = MetricsCommon.getMetricsName(configuration.getAlias());
+            try {
+                template.counterType = CounterType.valueOf(configuration.getCounterType());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                log.error("错误的{} counterType配置:{},只能是 {} 或 {},未修正前,将忽略此监控值", configuration.getAlias(), configuration.getCounterType(), CounterType.COUNTER, CounterType.GAUGE, e);
+            }
+            template.tags = StringUtils.isEmpty(configuration.getTag()) ? tags : tags + "," + configuration.getTag();
+            template.group = groups.computeIfAbsent(String.valueOf(configuration.getMetrics()),k -> groups.size());
+            template.transform = MetricsCommon.compileJsExpress(configuration.getValueExpress());
+            configTemplates[i++] = template;
+        }
+        this.groupCount = groups.size();
+    }
+
+    /**
+     * 获取JMX连接的提取计划,监控项配置及tags未变化时返回缓存的实例
+     * @param jmxPlugin
+     * @param metricsValueInfo
+     * @return
+     */
+    static JMXExtractionPlan of(JMXPlugin jmxPlugin, JMXMetricsValueInfo metricsValueInfo){
+        String key = key(jmxPlugin.pluginName(),metricsValueInfo.getJmxConnectionInfo().getCacheKeyId());
+        String tags = MetricsCommon.getTags(metricsValueInfo.getJmxConnectionInfo().getName(), jmxPlugin, jmxPlugin.serverName());
+        Set<JMXMetricsConfiguration> configurations = metricsValueInfo.getJmxMetricsConfigurations();
+        JMXExtractionPlan plan = PLANS.get(key);
+        if(plan == null || plan.step != jmxPlugin.step() || !plan.tags.equals(tags) || !plan.configurations.equals(configurations)){
+            plan = new JMXExtractionPlan(configurations,tags,jmxPlugin.step());
+            if(PLANS.size() >= MAX_CACHE_SIZE){
+                PLANS.clear();
+            }
+            PLANS.put(key,plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 移除JMX连接的提取计划
+     * @param pluginName
+     * @param cacheKeyId
+     */
+    static void remove(String pluginName, String cacheKeyId){
+        PLANS.remove(key(pluginName,cacheKeyId));
+    }
+
+    private static String key(String pluginName, String cacheKeyId){
+        return pluginName + "\u0000" + cacheKeyId;
+    }
+
+    private Template[] templates(ObjectName objectName){
+        Template[] result = templates.get(objectName);
+        if(result == null){
+            String name = objectName.toString();
+            List<Template> matched = new ArrayList<>();
+            for (Template template : configTemplates) {
+                if(name.contains(template.configuration.getObjectName())){
+                    matched.add(template);
+                }
+            }
+            result = matched.toArray(new Template[matched.size()]);
+            templates.put(objectName,result);
+        }
+        return result;
+    }
+
+    /**
+     * 将采集到的值填入报告模板
+     * @param metricsValueInfo
+     * @param result
+     * 生成的监控值报告
+     */
+    void fill(JMXMetricsValueInfo metricsValueInfo, Collection<FalconReportObject> result){
+        List<JMXObjectNameInfo> objectNameInfos = metricsValueInfo.getJmxObjectNameInfoList();
+        if(objectNameInfos == null){
+            objectNameInfos = Collections.emptyList();
+        }
+        boolean[] collected = new boolean[configTemplates.length];
+        FalconReportObject[] firsts = new FalconReportObject[groupCount];
+        boolean[] distinguished = new boolean[groupCount];
+
+        for (JMXObjectNameInfo jmxObjectNameInfo : objectNameInfos) {
+            Map<String, Object> metricsMap = jmxObjectNameInfo.getMetricsValue();
+            for (Template template : templates(jmxObjectNameInfo.getObjectName())) {
+                JMXMetricsConfiguration configuration = template.configuration;
+                Object metricsValue = metricsMap.get(configuration.getMetrics());
+                if(metricsValue == null){
+                    if(metricsMap.get(configuration.getAlias()) != null){
+                        collected[template.index] = true;
+                    }
+                    continue;
+                }
+                collected[template.index] = true;
+                if(template.counterType == null){
+                    continue;
+                }
+
+                FalconReportObject requestObject = new FalconReportObject();
+                MetricsCommon.setReportCommonValue(requestObject, step);
+                requestObject.setMetric(template.metric);
+                requestObject.setCounterType(template.counterType);
+                requestObject.setTimestamp(metricsValueInfo.getTimestamp());
+                requestObject.setObjectName(jmxObjectNameInfo.getObjectName());
+                Object newValue = template.transform.apply(metricsValue.toString());
+                if (newValue instanceof Number) {
+                    requestObject.setValue((Number) newValue);
+                } else {
+                    requestObject.setValue(String.valueOf(newValue).trim());
+                }
+                if (!requestObject.isNumeric()) {
+                    log.error("异常:监控指标值{} - {} : {}不能转换为数字,将忽略此监控值", configuration.getObjectName(), configuration.getMetrics(), metricsValue);
+                    continue;
+                }
+                requestObject.setTags(template.tags);
+
+                //同一属性名在多个mBean上采集到值时,以ObjectName区分
+                FalconReportObject first = firsts[template.group];
+                if(first == null){
+                    firsts[template.group] = requestObject;
+                }else{
+                    if(!distinguished[template.group]){
+                        first.appendTags(first.getObjectName().toString());//JMX 的ObjectName名称符合tag格式
+                        distinguished[template.group] = true;
+                    }
+                    requestObject.appendTags(requestObject.getObjectName().toString());
+                }
+                result.add(requestObject);
+            }
+        }
+
+        //完整采集时移除已不存在的mBean的模板
+        if(!metricsValueInfo.isTruncated() && metricsValueInfo.getJmxConnectionInfo().isValid()
+                && templates.size() > objectNameInfos.size()){
+            Set<ObjectName> current = new HashSet<>();
+            objectNameInfos.forEach(jmxObjectNameInfo -> current.add(jmxObjectNameInfo.getObjectName()));
+            templates.keySet().retainAll(current);
+        }
+
+        //输出未采集到的指标
+        final List<String> noCollects = new ArrayList<>();
+        final List<String> hasCollects = new ArrayList<>();
+        for (Template template : configTemplates) {
+            String item = String.format("【metrics：%s，alias：%s】", template.configuration.getMetrics(), template.configuration.getAlias());
+            if(collected[template.index]){
+                hasCollects.add(item);
+            }else{
+                noCollects.add(item);
+            }
+        }
+        if (!noCollects.isEmpty()) {
+            log.warn("当前未采集到的指标({})：{}", noCollects.size(), noCollects);
+        }
+        log.warn("当前已采集到的指标({})：{}", hasCollects.size(), hasCollects);
+    }
+}
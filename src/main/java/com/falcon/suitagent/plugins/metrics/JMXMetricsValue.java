@@ -18,9 +18,7 @@ import com.falcon.suitagent.util.DockerUtil;
 import com.falcon.suitagent.util.MapUtil;
 import com.falcon.suitagent.util.Maths;
 import com.falcon.suitagent.util.StringUtils;
-import com.falcon.suitagent.vo.jmx.JMXMetricsConfiguration;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.math.NumberUtils;
 
 import javax.management.openmbean.CompositeDataSupport;
 import java.io.File;
@@ -58,110 +56,6 @@ public class JMXMetricsValue extends MetricsCommon {
         this.jmxMetricsValueInfos = jmxMetricsValueInfos;
     }
 
-    /**
-     * 构建监控值报告的中间对象
-     */
-    private class KitObjectNameMetrics {
-        JMXObjectNameInfo jmxObjectNameInfo;
-        JMXMetricsConfiguration jmxMetricsConfiguration;
-    }
-
-    /**
-     * 获取监控值报告的中间对象的辅助方法
-     *
-     * @param jmxObjectNameInfos
-     * @param metricsConfiguration
-     * @return
-     */
-    private Set<KitObjectNameMetrics> getKitObjectNameMetrics(Collection<JMXObjectNameInfo> jmxObjectNameInfos, JMXMetricsConfiguration metricsConfiguration) {
-        Set<KitObjectNameMetrics> kitObjectNameMetricsSet = new HashSet<>();
-        if (jmxObjectNameInfos != null) {
-            for (JMXObjectNameInfo jmxObjectNameInfo : jmxObjectNameInfos) {
-                String objectName = jmxObjectNameInfo.getObjectName().toString();
-                Map<String, Object> metricsMap = jmxObjectNameInfo.getMetricsValue();
-                if (objectName.contains(metricsConfiguration.getObjectName())) {
-                    if (metricsMap.get(metricsConfiguration.getMetrics()) != null ||
-                            metricsMap.get(metricsConfiguration.getAlias()) != null) {
-                        metricsConfiguration.setHasCollect(true);
-                        KitObjectNameMetrics kitObjectNameMetrics = new KitObjectNameMetrics();
-                        kitObjectNameMetrics.jmxObjectNameInfo = jmxObjectNameInfo;
-                        kitObjectNameMetrics.jmxMetricsConfiguration = metricsConfiguration;
-                        kitObjectNameMetricsSet.add(kitObjectNameMetrics);
-                    }
-                }
-            }
-        }
-        return kitObjectNameMetricsSet;
-    }
-
-    /**
-     * 生成监控报告的辅助方法
-     *
-     * @param kitObjectNameMetricses
-     * @param metricsValueInfo
-     * @return
-     */
-    private Set<FalconReportObject> generatorReportObject(Collection<KitObjectNameMetrics> kitObjectNameMetricses, JMXMetricsValueInfo metricsValueInfo) {
-        Set<FalconReportObject> result = new HashSet<>();
-
-        //用于判断监控值是否重复添加,若出现重复添加,进行监控值比较
-        Map<String, FalconReportObject> repeat = new HashMap<>();
-
-        for (KitObjectNameMetrics kitObjectNameMetrics : kitObjectNameMetricses) {
-            JMXObjectNameInfo jmxObjectNameInfo = kitObjectNameMetrics.jmxObjectNameInfo;
-            JMXMetricsConfiguration jmxMetricsConfiguration = kitObjectNameMetrics.jmxMetricsConfiguration;
-            Object metricsValue = jmxObjectNameInfo.getMetricsValue().get(jmxMetricsConfiguration.getMetrics());
-            if (metricsValue != null) {
-                //服务的标识后缀名
-                String name = metricsValueInfo.getJmxConnectionInfo().getName();
-
-                FalconReportObject requestObject = new FalconReportObject();
-                setReportCommonValue(requestObject, jmxPlugin.step());
-                requestObject.setMetric(getMetricsName(jmxMetricsConfiguration.getAlias()));//设置push obj 的 metrics
-                try {
-                    //设置push obj 的 Counter
-                    requestObject.setCounterType(CounterType.valueOf(jmxMetricsConfiguration.getCounterType()));
-                } catch (IllegalArgumentException e) {
-                    log.error("错误的{} counterType配置:{},只能是 {} 或 {},未修正前,将忽略此监控值", jmxMetricsConfiguration.getAlias(), jmxMetricsConfiguration.getCounterType(), CounterType.COUNTER, CounterType.GAUGE, e);
-                    continue;
-                }
-                requestObject.setTimestamp(metricsValueInfo.getTimestamp());
-                requestObject.setObjectName(jmxObjectNameInfo.getObjectName());
-                Object newValue = executeJsExpress(kitObjectNameMetrics.jmxMetricsConfiguration.getValueExpress(), metricsValue.toString());
-                if (NumberUtils.isNumber(String.valueOf(newValue).trim())) {
-                    requestObject.setValue(String.valueOf(newValue).trim());
-                } else {
-                    log.error("异常:监控指标值{} - {} : {}不能转换为数字,将忽略此监控值", jmxMetricsConfiguration.getObjectName(), jmxMetricsConfiguration.getMetrics(), metricsValue);
-                    continue;
-                }
-
-                requestObject.appendTags(getTags(name, jmxPlugin, jmxPlugin.serverName())).appendTags(jmxMetricsConfiguration.getTag());
-
-                //监控值重复性判断
-                FalconReportObject reportInRepeat = repeat.get(jmxMetricsConfiguration.getMetrics());
-                if (reportInRepeat == null) {
-                    //第一次添加
-                    result.add(requestObject);
-                    repeat.put(jmxMetricsConfiguration.getMetrics(), requestObject);
-                } else {
-                    if (!reportInRepeat.equals(requestObject)) {
-                        // 若已有记录而且不相同,进行区分保存
-                        result.remove(reportInRepeat);
-                        reportInRepeat.appendTags(requestObject.getObjectName().toString());//JMX 的ObjectName名称符合tag格式
-                        result.add(reportInRepeat);
-
-                        requestObject.appendTags(requestObject.getObjectName().toString());
-                        if (!result.contains(requestObject)) {
-                            result.add(requestObject);
-                        }
-                    }
-                }
-            }
-        }
-        return result;
-    }
-
-
     private String getServerDirPath(int pid, String serverName) {
         String key = serverName + pid;
         String serverDirPath = CacheUtil.getCacheValue(serverDirPathCatch.get(key));
@@ -195,6 +89,7 @@ public class JMXMetricsValue extends MetricsCommon {
         String key = jmxConnectionInfo.getConnectionServerName() + jmxConnectionInfo.getPid();
         JMXConnection.removeConnectCache(jmxConnectionInfo.getConnectionServerName(), jmxConnectionInfo.getPid());
         jmxConnectionInfo.closeJMXConnector();
+        JMXExtractionPlan.remove(jmxPlugin.pluginName(), jmxConnectionInfo.getCacheKeyId());
 
         //清理缓存数据
         for (Object k : MapUtil.getSameValueKeys(serverDirPathCatch, serverDirPathCatch.get(key))) {
@@ -271,6 +166,7 @@ public class JMXMetricsValue extends MetricsCommon {
             } else {
                 //添加可用性报告
                 result.add(generatorVariabilityReport(true, jmxConnectionInfo.getName(), metricsValueInfo.getTimestamp(), jmxPlugin.step(), jmxPlugin, jmxPlugin.serverName()));
+                result.add(generatorTruncatedReport(metricsValueInfo.isTruncated(), metricsValueInfo.getTimestamp(), jmxConnectionInfo.getName(), jmxPlugin.step(), jmxPlugin, jmxPlugin.serverName()));
             }
 
             if (jmxConnectionInfo.getMBeanServerConnection() != null
@@ -281,25 +177,8 @@ public class JMXMetricsValue extends MetricsCommon {
                     dirName = getServerDirName(jmxConnectionInfo.getPid(), jmxConnectionInfo.getConnectionServerName());
                 }
                 if (hasContinueReport(jmxConnectionInfo)) {
-                    Set<KitObjectNameMetrics> kitObjectNameMetricsSet = new HashSet<>();
-                    Set<JMXMetricsConfiguration> jmxMetricsConfigurationSet = metricsValueInfo.getJmxMetricsConfigurations();
-                    for (JMXMetricsConfiguration metricsConfiguration : jmxMetricsConfigurationSet) {// 配置文件配置的需要监控的
-                        kitObjectNameMetricsSet.addAll(getKitObjectNameMetrics(metricsValueInfo.getJmxObjectNameInfoList(), metricsConfiguration));
-                    }
-
-                    //输出未采集到的指标
-                    final List<String> noCollects = new ArrayList<>();
-                    final List<String> hasCollects = new ArrayList<>();
-                    jmxMetricsConfigurationSet.stream().filter(conf -> !conf.isHasCollect()).
-                            forEach(conf -> noCollects.add(String.format("【metrics：%s，alias：%s】", conf.getMetrics(), conf.getAlias())));
-                    jmxMetricsConfigurationSet.stream().filter(JMXMetricsConfiguration::isHasCollect).
-                            forEach(conf -> hasCollects.add(String.format("【metrics：%s，alias：%s】", conf.getMetrics(), conf.getAlias())));
-                    if (!noCollects.isEmpty()) {
-                        log.warn("当前未采集到的指标({})：{}", noCollects.size(), noCollects);
-                    }
-                    log.warn("当前已采集到的指标({})：{}", hasCollects.size(), hasCollects);
-
-                    result.addAll(generatorReportObject(kitObjectNameMetricsSet, metricsValueInfo));
+                    //按该连接的提取计划生成配置的监控值报告
+                    JMXExtractionPlan.of(jmxPlugin, metricsValueInfo).fill(metricsValueInfo, result);
 
                     //添加內建报告
                     result.addAll(getInbuiltReportObjects(metricsValueInfo));
@@ -435,51 +314,51 @@ public class JMXMetricsValue extends MetricsCommon {
 
                     if (heapMemoryUsage != null){
                         falconReportObject.setMetric(getMetricsName("HeapMemoryCommitted"));
-                        falconReportObject.setValue(String.valueOf(heapMemoryUsage.getCommitted()));
+                        falconReportObject.setValue(heapMemoryUsage.getCommitted());
                         result.add(falconReportObject.clone());
 
                         falconReportObject.setMetric(getMetricsName("HeapMemoryFree"));
-                        falconReportObject.setValue(String.valueOf(heapMemoryUsage.getMax() - heapMemoryUsage.getUsed()));
+                        falconReportObject.setValue(heapMemoryUsage.getMax() - heapMemoryUsage.getUsed());
                         result.add(falconReportObject.clone());
 
                         falconReportObject.setMetric(getMetricsName("HeapMemoryMax"));
-                        falconReportObject.setValue(String.valueOf(heapMemoryUsage.getMax()));
+                        falconReportObject.setValue(heapMemoryUsage.getMax());
                         result.add(falconReportObject.clone());
 
                         falconReportObject.setMetric(getMetricsName("HeapMemoryUsed"));
-                        falconReportObject.setValue(String.valueOf(heapMemoryUsage.getUsed()));
+                        falconReportObject.setValue(heapMemoryUsage.getUsed());
                         result.add(falconReportObject.clone());
 
                         //堆内存使用比例
                         falconReportObject.setMetric(getMetricsName("HeapMemoryUsedRatio"));
-                        falconReportObject.setValue(String.valueOf(Maths.div(heapMemoryUsage.getUsed(), heapMemoryUsage.getMax(), 2) * 100));
+                        falconReportObject.setValue(Maths.div(heapMemoryUsage.getUsed(), heapMemoryUsage.getMax(), 2) * 100);
                         result.add(falconReportObject.clone());
                     }
 
                     if (nonHeapMemoryUsage != null){
                         falconReportObject.setMetric(getMetricsName("NonHeapMemoryCommitted"));
-                        falconReportObject.setValue(String.valueOf(nonHeapMemoryUsage.getCommitted()));
+                        falconReportObject.setValue(nonHeapMemoryUsage.getCommitted());
                         result.add(falconReportObject.clone());
 
                         falconReportObject.setMetric(getMetricsName("NonHeapMemoryUsed"));
-                        falconReportObject.setValue(String.valueOf(nonHeapMemoryUsage.getUsed()));
+                        falconReportObject.setValue(nonHeapMemoryUsage.getUsed());
                         result.add(falconReportObject.clone());
 
                         if (nonHeapMemoryUsage.getMax() == -1) {
                             falconReportObject.setMetric(getMetricsName("NonHeapMemoryUsedRatio"));
-                            falconReportObject.setValue("-1");
+                            falconReportObject.setValue(-1);
                             result.add(falconReportObject.clone());
                         } else {
                             falconReportObject.setMetric(getMetricsName("NonHeapMemoryUsedRatio"));
-                            falconReportObject.setValue(String.valueOf(Maths.div(nonHeapMemoryUsage.getUsed(), nonHeapMemoryUsage.getMax(), 2) * 100));
+                            falconReportObject.setValue(Maths.div(nonHeapMemoryUsage.getUsed(), nonHeapMemoryUsage.getMax(), 2) * 100);
                             result.add(falconReportObject.clone());
 
                             falconReportObject.setMetric(getMetricsName("NonHeapMemoryMax"));
-                            falconReportObject.setValue(String.valueOf(nonHeapMemoryUsage.getMax()));
+                            falconReportObject.setValue(nonHeapMemoryUsage.getMax());
                             result.add(falconReportObject.clone());
 
                             falconReportObject.setMetric(getMetricsName("NonHeapMemoryFree"));
-                            falconReportObject.setValue(String.valueOf(nonHeapMemoryUsage.getMax() - nonHeapMemoryUsage.getUsed()));
+                            falconReportObject.setValue(nonHeapMemoryUsage.getMax() - nonHeapMemoryUsage.getUsed());
                             result.add(falconReportObject.clone());
                         }
                     }
@@ -493,28 +372,28 @@ public class JMXMetricsValue extends MetricsCommon {
 
                     if (metaspaceUsage != null) {
                         falconReportObject.setMetric(getMetricsName("MetaspaceMemoryCommitted"));
-                        falconReportObject.setValue(String.valueOf(metaspaceUsage.getCommitted()));
+                        falconReportObject.setValue(metaspaceUsage.getCommitted());
                         result.add(falconReportObject.clone());
 
                         falconReportObject.setMetric(getMetricsName("MetaspaceMemoryUsed"));
-                        falconReportObject.setValue(String.valueOf(metaspaceUsage.getUsed()));
+                        falconReportObject.setValue(metaspaceUsage.getUsed());
                         result.add(falconReportObject.clone());
 
                         if (metaspaceUsage.getMax() == -1) {
                             falconReportObject.setMetric(getMetricsName("MetaspaceMemoryUsedRatio"));
-                            falconReportObject.setValue("-1");
+                            falconReportObject.setValue(-1);
                             result.add(falconReportObject.clone());
                         } else {
                             falconReportObject.setMetric(getMetricsName("MetaspaceMemoryUsedRatio"));
-                            falconReportObject.setValue(String.valueOf(Maths.div(metaspaceUsage.getUsed(), metaspaceUsage.getMax(), 2) * 100));
+                            falconReportObject.setValue(Maths.div(metaspaceUsage.getUsed(), metaspaceUsage.getMax(), 2) * 100);
                             result.add(falconReportObject.clone());
 
                             falconReportObject.setMetric(getMetricsName("MetaspaceMemoryMax"));
-                            falconReportObject.setValue(String.valueOf(metaspaceUsage.getMax()));
+                            falconReportObject.setValue(metaspaceUsage.getMax());
                             result.add(falconReportObject.clone());
 
                             falconReportObject.setMetric(getMetricsName("MetaspaceMemoryFree"));
-                            falconReportObject.setValue(String.valueOf(metaspaceUsage.getMax() - metaspaceUsage.getUsed()));
+                            falconReportObject.setValue(metaspaceUsage.getMax() - metaspaceUsage.getUsed());
                             result.add(falconReportObject.clone());
                         }
                     }
@@ -14,15 +14,13 @@ import com.falcon.suitagent.util.HostUtil;
 import com.falcon.suitagent.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
+import javax.script.*;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /*
  * 修订记录:
@@ -190,6 +188,28 @@ public abstract class MetricsCommon {
         return generatorVariabilityReport(isAva,isAva?"1":"0",timestamp,agentSignName,step,plugin,serverName);
     }
 
+    /**
+     * 创建采集是否被截断的报告对象
+     * @param truncated
+     * 是否因超出时间预算而只上报了部分结果
+     * @param timestamp
+     * @param agentSignName
+     * @param step
+     * @param plugin
+     * @param serverName
+     * @return
+     */
+    public static FalconReportObject generatorTruncatedReport(boolean truncated, long timestamp, String agentSignName, int step, Plugin plugin, String serverName){
+        FalconReportObject falconReportObject = new FalconReportObject();
+        setReportCommonValue(falconReportObject,step);
+        falconReportObject.setCounterType(CounterType.GAUGE);
+        falconReportObject.setMetric(getMetricsName("collect.truncated"));
+        falconReportObject.setValue(truncated ? 1 : 0);
+        falconReportObject.appendTags(getTags(agentSignName,plugin,serverName));
+        falconReportObject.setTimestamp(timestamp);
+        return falconReportObject;
+    }
+
     /**
      * 创建指定可用性的报告对象
      * @param isAva
@@ -329,6 +349,45 @@ public abstract class MetricsCommon {
         return newValue;
     }
 
+    /**
+     * 预编译js表达式
+     * 返回的函数与 {@link #executeJsExpress(String, Object)} 的结果相同,但只创建一次脚本引擎并只编译一次表达式,
+     * 每次执行使用新的变量作用域,可以并发调用。
+     * 脚本引擎不支持编译时,退回到每次调用 {@link #executeJsExpress(String, Object)}
+     * @param express
+     * 表达式
+     * @return
+     */
+    public static Function<Object,Object> compileJsExpress(String express){
+        if(StringUtils.isEmpty(express)){
+            return Function.identity();
+        }
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+        if(!(engine instanceof Compilable)){
+            return value -> executeJsExpress(express,value);
+        }
+        CompiledScript script;
+        try {
+            script = ((Compilable) engine).compile(express);
+        } catch (ScriptException e) {
+            log.error("编译js表达式错误",e);
+            return value -> executeJsExpress(express,value);
+        }
+        return value -> {
+            //每次执行使用独立的变量作用域,与 executeJsExpress 一样不保留上一次执行定义的变量
+            Bindings bindings = engine.createBindings();
+            bindings.put("value", value);
+            bindings.put("newValue", "");
+            try {
+                script.eval(bindings);
+                return bindings.get("newValue");
+            } catch (ScriptException e) {
+                log.error("执行js表达式错误",e);
+                return value;
+            }
+        };
+    }
+
     /**
      * 获取Agent计算后的服务标识tag
      * @param agentSignName
@@ -0,0 +1,217 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.plugins.metrics;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:25 创建
+ */
+
+import com.falcon.suitagent.common.ScheduledJob;
+import com.falcon.suitagent.falcon.CounterType;
+import com.falcon.suitagent.falcon.FalconReportObject;
+import com.falcon.suitagent.falcon.MetricKey;
+import com.falcon.suitagent.falcon.ReportMetrics;
+import org.quartz.JobDataMap;
+
+import java.util.*;
+
+/**
+ * 周期内采样的汇总
+ * 启用了采样的插件以更短的采样间隔运行,每次采样的结果不直接上报,而是按指标累积到原始类型数组中,
+ * 每个step只上报一次:原指标上报周期内最后一次采样的值,数值型的GAUGE指标另外上报 .min 、.max 、.avg 、.p95 等汇总指标
+ * @author agent@local
+ */
+public class SampleRollup {
+
+    /**
+     * 采样汇总对象在JobDataMap中的key
+     */
+    public static final String JOB_DATA_KEY = "sampleRollup";
+
+    private final int step;
+    private final int capacity;
+    private final List<String> rollups;
+    private final Map<MetricKey,Series> seriesMap = new HashMap<>();
+    /**
+     * 当前汇总的周期序号 (timestamp / step)
+     */
+    private long slot = -1;
+
+    private static final class Series {
+        private FalconReportObject last;
+        private double[] values;
+        private int count;
+        private boolean numeric = true;
+    }
+
+    /**
+     * @param step
+     * 上报周期(秒)
+     * @param sampleInterval
+     * 采样间隔(秒)
+     * @param rollups
+     * 汇总指标: min 、max 、avg 、p95
+     */
+    public SampleRollup(int step, int sampleInterval, List<String> rollups) {
+        this.step = step;
+        this.capacity = step / sampleInterval + 2;
+        this.rollups = rollups;
+    }
+
+    /**
+     * 上报采集结果
+     * @param rollup
+     * 插件job的采样汇总对象,为null时直接上报
+     * @param reports
+     */
+    public static void push(SampleRollup rollup, Collection<FalconReportObject> reports){
+        if(rollup == null){
+            ReportMetrics.push(reports);
+            return;
+        }
+        List<FalconReportObject> rollupReports = rollup.add(reports);
+        if(!rollupReports.isEmpty()){
+            ReportMetrics.push(rollupReports);
+        }
+    }
+
+    /**
+     * 上报插件job的采集结果
+     * 未采样且自适应调度拉长了job的间隔时,报告的step按当前倍数修正为实际的上报间隔
+     * @param jobDataMap
+     * 插件job的数据
+     * @param reports
+     */
+    public static void push(JobDataMap jobDataMap, Collection<FalconReportObject> reports){
+        SampleRollup rollup = (SampleRollup) jobDataMap.get(JOB_DATA_KEY);
+        Object multiplier = jobDataMap.get(ScheduledJob.STEP_MULTIPLIER_KEY);
+        if(rollup == null && multiplier instanceof Integer && (Integer) multiplier > 1 && reports != null){
+            for (FalconReportObject report : reports) {
+                report.setStep(report.getStep() * (Integer) multiplier);
+            }
+        }
+        push(rollup,reports);
+    }
+
+    /**
+     * 累积一次采样的结果
+     * @param reports
+     * @return
+     * 采样进入新的周期时,上一个周期的汇总报告
+     */
+    public synchronized List<FalconReportObject> add(Collection<FalconReportObject> reports){
+        if(reports == null || reports.isEmpty()){
+            return Collections.emptyList();
+        }
+        List<FalconReportObject> result = Collections.emptyList();
+        for (FalconReportObject report : reports) {
+            if(report == null){
+                continue;
+            }
+            long reportSlot = report.getTimestamp() / step;
+            if(reportSlot > slot){
+                if(slot >= 0){
+                    if(result.isEmpty()){
+                        result = new ArrayList<>();
+                    }
+                    rollup(result);
+                }
+                slot = reportSlot;
+            }
+            accumulate(report);
+        }
+        return result;
+    }
+
+    private void accumulate(FalconReportObject report){
+        MetricKey key = report.getMetricKey();
+        Series series = seriesMap.get(key);
+        if(series == null){
+            series = new Series();
+            series.values = new double[capacity];
+            seriesMap.put(key,series);
+        }
+        series.last = report;
+        if(report.getCounterType() != CounterType.GAUGE){
+            series.numeric = false;
+        }
+        if(!series.numeric){
+            series.count++;
+            return;
+        }
+        if(!report.isNumeric()){
+            series.numeric = false;
+            series.count++;
+            return;
+        }
+        if(series.count == series.values.length){
+            series.values = Arrays.copyOf(series.values,series.values.length * 2);
+        }
+        series.values[series.count++] = report.getDoubleValue();
+    }
+
+    /**
+     * 输出当前周期的汇总报告,并重置累积值
+     * @param result
+     */
+    private void rollup(List<FalconReportObject> result){
+        long timestamp = slot * step;
+        Iterator<Series> iterator = seriesMap.values().iterator();
+        while (iterator.hasNext()){
+            Series series = iterator.next();
+            if(series.count == 0){
+                //整个周期都未出现的指标不再保留
+                iterator.remove();
+                continue;
+            }
+            FalconReportObject base = series.last.clone();
+            base.setTimestamp(timestamp);
+            result.add(base);
+            if(series.numeric){
+                for (String rollup : rollups) {
+                    FalconReportObject reportObject = series.last.clone();
+                    reportObject.setMetric(series.last.getMetric() + "." + rollup);
+                    reportObject.setValue(compute(rollup,series.values,series.count));
+                    reportObject.setTimestamp(timestamp);
+                    result.add(reportObject);
+                }
+            }
+            series.count = 0;
+            series.numeric = true;
+        }
+    }
+
+    private static double compute(String rollup,double[] values,int count){
+        switch (rollup){
+            case "min": {
+                double min = values[0];
+                for (int i = 1; i < count; i++) {
+                    min = Math.min(min,values[i]);
+                }
+                return min;
+            }
+            case "max": {
+                double max = values[0];
+                for (int i = 1; i < count; i++) {
+                    max = Math.max(max,values[i]);
+                }
+                return max;
+            }
+            case "avg": {
+                double sum = 0;
+                for (int i = 0; i < count; i++) {
+                    sum += values[i];
+                }
+                return sum / count;
+            }
+            default: {
+                //p95,取最近秩
+                double[] sorted = Arrays.copyOf(values,count);
+                Arrays.sort(sorted);
+                return sorted[(int) Math.ceil(count * 0.95) - 1];
+            }
+        }
+    }
+}
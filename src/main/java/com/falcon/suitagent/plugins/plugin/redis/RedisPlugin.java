@@ -27,7 +27,6 @@ import com.falcon.suitagent.plugins.Plugin;
 import com.falcon.suitagent.util.*;
 import com.falcon.suitagent.vo.detect.DetectResult;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.math.NumberUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -64,8 +63,9 @@ public class RedisPlugin implements DetectPlugin {
             );
     /**
      * 相对变化量数据记录
+     * 每个地址一个数组,下标与 REDIS_RELATIVE_METRICS 对应,NaN表示尚无记录
      */
-    private static ConcurrentHashMap<String,Number> metricsHistoryValueForRelative = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String,double[]> metricsHistoryValueForRelative = new ConcurrentHashMap<>();
 
     /**
      * 插件初始化操作
@@ -264,7 +264,7 @@ public class RedisPlugin implements DetectPlugin {
         if (map.get("rdb_last_bgsave_status") != null){
             //一个标志值，记录了最后一次创建RDB文件的结果是成功还是失败
             String value = map.get("rdb_last_bgsave_status");
-            metricList.add(new DetectResult.Metric("rdb_last_bgsave_status","ok".equals(value.toLowerCase())?"1":"0",CounterType.GAUGE,""));
+            metricList.add(new DetectResult.Metric("rdb_last_bgsave_status","ok".equals(value.toLowerCase())?1L:0L,CounterType.GAUGE,""));
         }
         //最后一次创建RDB文件耗费的秒数
         addMetrics(metricList,map,"rdb_last_bgsave_time_sec",CounterType.GAUGE,"");
@@ -273,7 +273,7 @@ public class RedisPlugin implements DetectPlugin {
         if (map.get("aof_last_bgrewrite_status") != null){
             //一个标志值，记录了最后一次重写AOF文件的结果是成功还是失败
             String value = map.get("aof_last_bgrewrite_status");
-            metricList.add(new DetectResult.Metric("aof_last_bgrewrite_status","ok".equals(value.toLowerCase())?"1":"0",CounterType.GAUGE,""));
+            metricList.add(new DetectResult.Metric("aof_last_bgrewrite_status","ok".equals(value.toLowerCase())?1L:0L,CounterType.GAUGE,""));
         }
         //AOF文件目前的大小(AOF持久化功能处于开启状态)
         addMetrics(metricList,map,"aof_current_size",CounterType.GAUGE,"");
@@ -298,15 +298,16 @@ public class RedisPlugin implements DetectPlugin {
         //因为最大内存容量限制而被驱逐（evict）的键数量以及相对量
         addMetrics(metricList,map,"evicted_keys",CounterType.GAUGE,"");
         //查找数据库键成功的次数以及相对量
-        String hits = addMetrics(metricList,map,"keyspace_hits",CounterType.GAUGE,"");
+        double hits = addMetrics(metricList,map,"keyspace_hits",CounterType.GAUGE,"");
         //查找数据库键失败的次数以及相对量
-        String misses = addMetrics(metricList,map,"keyspace_misses",CounterType.GAUGE,"");
+        double misses = addMetrics(metricList,map,"keyspace_misses",CounterType.GAUGE,"");
         //命中率百分比 hits / (hits + misses) * 100
-        metricList.add(new DetectResult.Metric("keyspace_hit_ratio",
-                "0".equals(hits)?"0":String.valueOf(Maths.mul(Maths.div(NumberUtils.createDouble(hits),
-                        Maths.add(NumberUtils.createDouble(hits),
-                                NumberUtils.createDouble(misses))),100))
-                ,CounterType.GAUGE,""));
+        if(hits == 0){
+            metricList.add(new DetectResult.Metric("keyspace_hit_ratio",0L,CounterType.GAUGE,""));
+        }else{
+            metricList.add(new DetectResult.Metric("keyspace_hit_ratio",
+                    Maths.mul(Maths.div(hits,Maths.add(hits,misses)),100),CounterType.GAUGE,""));
+        }
         //目前被订阅的频道数量以及相对值
         addMetrics(metricList,map,"pubsub_channels",CounterType.GAUGE,"");
         //目前被订阅的模式数量以及相对值
@@ -317,7 +318,7 @@ public class RedisPlugin implements DetectPlugin {
         if (map.get("role") != null){
             //在主从复制中，充当的角色。1:master
             String value = map.get("role");
-            metricList.add(new DetectResult.Metric("role","master".equals(value.toLowerCase())?"1":"0",CounterType.GAUGE,""));
+            metricList.add(new DetectResult.Metric("role","master".equals(value.toLowerCase())?1L:0L,CounterType.GAUGE,""));
         }
         //连接的从库数量
         addMetrics(metricList,map,"connected_slaves",CounterType.GAUGE,"");
@@ -325,7 +326,7 @@ public class RedisPlugin implements DetectPlugin {
         if (map.get("master_link_status") != null){
             //复制连接当前的状态 1:正常 0：断开(如果当前服务器是从服务器)
             String value = map.get("master_link_status");
-            metricList.add(new DetectResult.Metric("master_link_status","up".equals(value.toLowerCase())?"1":"0",CounterType.GAUGE,""));
+            metricList.add(new DetectResult.Metric("master_link_status","up".equals(value.toLowerCase())?1L:0L,CounterType.GAUGE,""));
         }
         //距离最近一次与主服务器进行通信已经过去了多少秒(如果当前服务器是从服务器)
         addMetrics(metricList,map,"master_last_io_seconds_ago",CounterType.GAUGE,"");
@@ -345,9 +346,9 @@ public class RedisPlugin implements DetectPlugin {
             redisKeys = split[0].split("=")[1];
             expires = split[1].split("=")[1];
             avg_ttl = split[2].split("=")[1];
-            metricList.add(new DetectResult.Metric("keyspace_keys",redisKeys,CounterType.GAUGE,tag));
-            metricList.add(new DetectResult.Metric("keyspace_expires",expires,CounterType.GAUGE,tag));
-            metricList.add(new DetectResult.Metric("keyspace_avg_ttl",avg_ttl,CounterType.GAUGE,tag));
+            metricList.add(parseMetric("keyspace_keys",redisKeys,CounterType.GAUGE,tag));
+            metricList.add(parseMetric("keyspace_expires",expires,CounterType.GAUGE,tag));
+            metricList.add(parseMetric("keyspace_avg_ttl",avg_ttl,CounterType.GAUGE,tag));
         });
 
         metricList.addAll(getRelativeMetrics(metricList,address));
@@ -362,14 +363,58 @@ public class RedisPlugin implements DetectPlugin {
      * @param counterType
      * @param tag
      * @return
-     * 监控值
+     * 监控值,不存在或不是数值时为0
      */
-    private static String addMetrics(List<DetectResult.Metric> metricList,Map<String, String> map,String key,CounterType counterType,String tag){
+    private static double addMetrics(List<DetectResult.Metric> metricList,Map<String, String> map,String key,CounterType counterType,String tag){
         if (map.get(key) != null){
-            metricList.add(new DetectResult.Metric(key,map.get(key),counterType,tag));
-            return map.get(key);
+            DetectResult.Metric metric = parseMetric(key,map.get(key),counterType,tag);
+            metricList.add(metric);
+            return metric.isNumeric() ? metric.doubleValue() : 0;
         }
-        return "0";
+        return 0;
+    }
+
+    /**
+     * 将info结果的值解析为数值Metric,只解析一次,上报时不再经过字符串
+     * @param key
+     * @param value
+     * @param counterType
+     * @param tag
+     * @return
+     * 不是数值时以字符串构造
+     */
+    private static DetectResult.Metric parseMetric(String key,String value,CounterType counterType,String tag){
+        String trimmed = value.trim();
+        if(isInteger(trimmed)){
+            return new DetectResult.Metric(key,Long.parseLong(trimmed),counterType,tag);
+        }
+        try {
+            double d = Double.parseDouble(trimmed);
+            if(!Double.isNaN(d) && !Double.isInfinite(d)){
+                return new DetectResult.Metric(key,d,counterType,tag);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        return new DetectResult.Metric(key,value,counterType,tag);
+    }
+
+    /**
+     * 是否为long范围内的整数
+     * @param value
+     * @return
+     */
+    private static boolean isInteger(String value){
+        int start = value.startsWith("-") ? 1 : 0;
+        if(value.length() == start || value.length() - start > 18){
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -381,18 +426,21 @@ public class RedisPlugin implements DetectPlugin {
     private List<DetectResult.Metric> getRelativeMetrics(List<DetectResult.Metric> metricList, String address){
         List<DetectResult.Metric> relativeMetrics = new ArrayList<>();
         if (metricList != null){
+            double[] history = metricsHistoryValueForRelative.computeIfAbsent(address,k -> {
+                double[] values = new double[REDIS_RELATIVE_METRICS.size()];
+                Arrays.fill(values,Double.NaN);
+                return values;
+            });
             metricList.forEach(metric -> {
-                String metricKey = metric.metricName + address;
-                if (REDIS_RELATIVE_METRICS.contains(metric.metricName)){
-                    Number previousValue = metricsHistoryValueForRelative.get(metricKey);
-                    if (previousValue == null){
-                        previousValue = NumberUtils.createNumber(metric.value);
-                        //保存此次的值
-                        metricsHistoryValueForRelative.put(metricKey,previousValue);
-                    }else {
-                        String value = String.valueOf(Maths.sub(NumberUtils.createDouble(metric.value),previousValue.doubleValue()));
-                        metricsHistoryValueForRelative.put(metricKey,NumberUtils.createDouble(metric.value));
-                        relativeMetrics.add(new DetectResult.Metric(metric.metricName + "_relative",value,CounterType.GAUGE,""));
+                int index = REDIS_RELATIVE_METRICS.indexOf(metric.metricName);
+                if (index >= 0 && metric.isNumeric()){
+                    double previousValue = history[index];
+                    double currentValue = metric.doubleValue();
+                    //保存此次的值
+                    history[index] = currentValue;
+                    if (!Double.isNaN(previousValue)){
+                        relativeMetrics.add(new DetectResult.Metric(metric.metricName + "_relative",
+                                Maths.sub(currentValue,previousValue),CounterType.GAUGE,""));
                     }
                 }
             });
@@ -24,6 +24,7 @@ package com.falcon.suitagent.plugins.plugin.script;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.common.ScheduledJob;
 import com.falcon.suitagent.falcon.CounterType;
 import com.falcon.suitagent.plugins.DetectPlugin;
 import com.falcon.suitagent.plugins.Plugin;
@@ -34,7 +35,6 @@ import com.falcon.suitagent.vo.detect.DetectResult;
 import com.falcon.suitagent.vo.sceduler.ScheduleJobResult;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.math.NumberUtils;
-import org.quartz.Trigger;
 
 import java.io.File;
 import java.util.*;
@@ -136,9 +136,9 @@ public class ScriptPlugin implements DetectPlugin {
         if (success){
             ScheduleJobResult scheduleJobResult = SchedulerUtil.getResultByPlugin(this);
             if (scheduleJobResult != null){
-                Trigger trigger = scheduleJobResult.getTrigger();
-                if (trigger != null){
-                    long startTime = scheduleJobResult.getTrigger().getStartTime().getTime();
+                ScheduledJob scheduledJob = scheduleJobResult.getScheduledJob();
+                if (scheduledJob != null){
+                    long startTime = scheduledJob.getStartTime();
                     long currentTime = System.currentTimeMillis();
                     long interval = 0L;
                     Long lastExecTime = lastScriptExecTime.get(script.toString());
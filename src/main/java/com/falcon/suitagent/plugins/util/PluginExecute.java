@@ -16,7 +16,6 @@ import com.falcon.suitagent.plugins.job.SNMPPluginJob;
 import com.falcon.suitagent.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.JobDataMap;
-import org.quartz.SchedulerException;
 
 import java.sql.DriverManager;
 import java.util.Set;
@@ -29,9 +28,8 @@ public class PluginExecute {
 
     /**
      * 启动插件
-     * @throws SchedulerException
      */
-    public static void start() throws SchedulerException {
+    public static void start() {
         //根据配置启动自发现功能
         AgentJobHelper.agentFlush();
         run();
@@ -17,6 +17,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +29,7 @@ public class PluginLibraryHelper {
 
     private final static Set<Plugin> plugins = new HashSet<>();
     private final static List<String> pluginNames = new ArrayList<>();
+    private final static Map<Plugin,Integer> sampleIntervals = new ConcurrentHashMap<>();
 
     private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
@@ -127,6 +129,15 @@ public class PluginLibraryHelper {
         return targetPlugins;
     }
 
+    /**
+     * 插件的采样间隔(秒),0为不采样
+     * @param plugin
+     * @return
+     */
+    public static int getSampleInterval(Plugin plugin){
+        return sampleIntervals.getOrDefault(plugin,0);
+    }
+
     /**
      * 获取插件的配置
      * @param plugin
@@ -178,6 +189,7 @@ public class PluginLibraryHelper {
                         log.warn("插件 {} 无效 : {}",clazz.getName(),avaStr);
                         continue;
                     }
+                    initSampleInterval(plugin,config);
                     plugins.add(plugin);
                     log.info("成功注册插件:{},启动方式:{}",clazzName,plugin.activateType().getDesc());
                 }
@@ -187,6 +199,33 @@ public class PluginLibraryHelper {
         }
     }
 
+    /**
+     * 确定插件的采样间隔,无效的采样间隔将被忽略
+     * @param plugin
+     * @param config
+     */
+    private void initSampleInterval(Plugin plugin,Map<String,String> config){
+        int sampleInterval;
+        try {
+            String conf = config.get("sampleInterval");
+            sampleInterval = StringUtils.isEmpty(conf) ? plugin.sampleInterval() : Integer.parseInt(conf.trim());
+        } catch (Exception e) {
+            log.warn("插件 {} 的采样间隔配置无效,不进行采样",plugin.pluginName(),e);
+            return;
+        }
+        if(sampleInterval <= 0){
+            return;
+        }
+        int step = plugin.step();
+        if(sampleInterval >= step || step % sampleInterval != 0 || (sampleInterval < 60 && 60 % sampleInterval != 0)){
+            log.warn("插件 {} 的采样间隔 {} 无效,必须小于step({})且能整除step,小于60时还必须能整除60,不进行采样",
+                    plugin.pluginName(),sampleInterval,step);
+            return;
+        }
+        sampleIntervals.put(plugin,sampleInterval);
+        log.info("插件 {} 启用采样,采样间隔 {} 秒,上报周期 {} 秒",plugin.pluginName(),sampleInterval,step);
+    }
+
     /**
      * 插件有效性判断
      * @return
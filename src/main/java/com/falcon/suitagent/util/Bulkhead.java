@@ -0,0 +1,198 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.util;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:39 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 插件的隔离执行器
+ * 每个插件拥有独立的、有界的执行线程及等待队列,某个插件的采集目标挂起时只会占满该插件自己的线程和队列,
+ * 队列满后该插件的新任务被拒绝({@link RejectedExecutionException}),不影响其他插件。
+ * 虚拟线程模式下不创建平台线程,由信号量限制并发数,等待许可的任务数即为排队数。
+ * @author agent@local
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+
+    /**
+     * 平台线程模式的执行器
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 虚拟线程模式的执行器(共享)及并发许可
+     */
+    private final ExecutorService virtualExecutor;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name
+     * 名称,一般为插件名称
+     * @param threads
+     * 最大并发数
+     * @param queueCapacity
+     * 并发数已满时可等待的任务数,0为不排队
+     * @param virtualExecutor
+     * 虚拟线程执行器,为null时使用平台线程
+     */
+    Bulkhead(String name, int threads, int queueCapacity, ExecutorService virtualExecutor) {
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.virtualExecutor = virtualExecutor;
+        if(virtualExecutor != null){
+            this.executor = null;
+            this.permits = new Semaphore(threads);
+        }else{
+            AtomicInteger count = new AtomicInteger();
+            //ArrayBlockingQueue的容量不能为0,不排队时直接交给空闲线程
+            BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    queue,
+                    r -> {
+                        Thread t = new Thread(r);
+                        t.setName("bulkhead-" + name + "-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            this.executor.allowCoreThreadTimeOut(true);
+            this.permits = null;
+        }
+    }
+
+    /**
+     * 执行任务
+     * @param task
+     * @throws RejectedExecutionException
+     * 并发数及等待队列均已满
+     */
+    public void execute(Runnable task){
+        submit(task);
+    }
+
+    /**
+     * 执行任务
+     * @param task
+     * @return
+     * @throws RejectedExecutionException
+     * 并发数及等待队列均已满
+     */
+    public Future<?> submit(Runnable task){
+        return submit(Executors.callable(task));
+    }
+
+    /**
+     * 执行任务
+     * @param task
+     * @param <T>
+     * @return
+     * @throws RejectedExecutionException
+     * 并发数及等待队列均已满
+     */
+    public <T> Future<T> submit(Callable<T> task){
+        if(virtualExecutor == null){
+            try {
+                return executor.submit(() -> {
+                    try {
+                        return task.call();
+                    } finally {
+                        completed.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+        if(inFlight.incrementAndGet() > threads + queueCapacity){
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(String.format("插件 %s 的执行队列已满",name));
+        }
+        try {
+            return virtualExecutor.submit(() -> {
+                try {
+                    permits.acquire();
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 正在执行的任务数
+     * @return
+     */
+    public int getActive(){
+        return executor != null ? executor.getActiveCount() : threads - permits.availablePermits();
+    }
+
+    /**
+     * 等待执行的任务数
+     * @return
+     */
+    public int getQueued(){
+        return executor != null ? executor.getQueue().size() : permits.getQueueLength();
+    }
+
+    /**
+     * 被拒绝的任务数(累计)
+     * @return
+     */
+    public long getRejected(){
+        return rejected.get();
+    }
+
+    /**
+     * 执行器的统计信息
+     * @return
+     */
+    public JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("threads",threads);
+        status.put("queueCapacity",queueCapacity);
+        status.put("active",getActive());
+        status.put("queued",getQueued());
+        status.put("completed",completed.get());
+        status.put("rejected",rejected.get());
+        return status;
+    }
+
+    void shutdown(){
+        if(executor != null){
+            executor.shutdown();
+        }
+    }
+}
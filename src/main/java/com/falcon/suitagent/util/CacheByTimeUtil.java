@@ -21,6 +21,7 @@ package com.falcon.suitagent.util;
  * long.qian@msxf.com 2017-09-11 14:29 创建
  */
 
+import com.falcon.suitagent.common.ScheduledJob;
 import com.falcon.suitagent.vo.sceduler.ScheduleJobResult;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -28,8 +29,6 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.math.NumberUtils;
 import org.quartz.JobDataMap;
-import org.quartz.JobDetail;
-import org.quartz.Trigger;
 
 import java.util.Optional;
 import java.util.Set;
@@ -72,9 +71,8 @@ public class CacheByTimeUtil {
         }
 
         try {
-            JobDetail job = getJobDetail(CacheByTimeUtilCheckJob.class,"CacheByTimeUtilCheckJob", "缓存检查任务",new JobDataMap());
-            Trigger trigger = getTrigger(CACHE_TIME * 3 + 15,"CacheByTimeUtilCheckTrigger","缓存检查任务");
-            ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job,trigger);
+            ScheduledJob job = newJob(CacheByTimeUtilCheckJob.class,"CacheByTimeUtilCheckJob","缓存检查任务",new JobDataMap(),CACHE_TIME * 3 + 15);
+            ScheduleJobResult scheduleJobResult = SchedulerUtil.executeScheduleJob(job);
             scheduleResults.add(scheduleJobResult);
             workResult(scheduleJobResult,"CacheByTimeUtilCheckJob");
         } catch (Exception e) {
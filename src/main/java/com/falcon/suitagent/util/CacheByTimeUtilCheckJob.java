@@ -21,16 +21,15 @@ package com.falcon.suitagent.util;
  * long.qian@msxf.com 2017-09-20 16:35 创建
  */
 
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import com.falcon.suitagent.common.AgentJob;
+import org.quartz.JobDataMap;
 
 /**
  * @author long.qian@msxf.com
  */
-public class CacheByTimeUtilCheckJob implements Job {
+public class CacheByTimeUtilCheckJob implements AgentJob {
     @Override
-    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+    public void execute(JobDataMap jobDataMap) {
         CacheByTimeUtil.checkCache();
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.util;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:41 创建
+ */
+
+/**
+ * 一次采集的截止时间
+ * 采集过程中的各个子操作共享同一个时间预算: 每个子操作的超时时间取其固定超时与剩余预算中的较小值,
+ * 预算耗尽后不再发起新的子操作,由调用方上报已获取的部分结果。
+ * @author agent@local
+ */
+public final class Deadline {
+
+    private final long startNanos;
+    private final long deadlineNanos;
+
+    private Deadline(long budgetMillis) {
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = startNanos + budgetMillis * 1000000L;
+    }
+
+    /**
+     * 从当前时间开始的截止时间
+     * @param budgetMillis
+     * 时间预算(毫秒)
+     * @return
+     */
+    public static Deadline after(long budgetMillis){
+        return new Deadline(budgetMillis);
+    }
+
+    /**
+     * 剩余的时间(毫秒),不小于0
+     * @return
+     */
+    public long remainingMillis(){
+        return Math.max(0,(deadlineNanos - System.nanoTime()) / 1000000L);
+    }
+
+    /**
+     * 是否已到截止时间
+     * @return
+     */
+    public boolean isExpired(){
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 子操作的超时时间
+     * @param maxMillis
+     * 子操作的固定超时时间(毫秒)
+     * @return
+     * 固定超时时间与剩余时间中的较小值
+     */
+    public long timeout(long maxMillis){
+        return Math.min(maxMillis,remainingMillis());
+    }
+
+    /**
+     * 已经过的时间(毫秒)
+     * @return
+     */
+    public long elapsedMillis(){
+        return (System.nanoTime() - startNanos) / 1000000L;
+    }
+}
@@ -8,27 +8,77 @@ package com.falcon.suitagent.util;
  * guqiu@yiji.com 2016-07-15 13:42 创建
  */
 
+import com.alibaba.fastjson.JSONObject;
 import com.falcon.suitagent.config.AgentConfiguration;
+import com.falcon.suitagent.falcon.AgentMetrics;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.*;
 
 /**
+ * 采集任务的执行线程
+ * 默认使用平台线程池;配置 agent.thread.virtual.enable = true 且JRE支持时(JDK21及以上),每个任务运行在一个虚拟线程上,
+ * 由信号量限制同时执行的任务数,超出的任务在虚拟线程中等待许可,而不是被丢弃。
+ * 插件的采集任务通过 {@link #bulkhead(String)} 获取插件各自的隔离执行器,避免一个插件的慢目标拖垮其他插件。
  * @author guqiu@yiji.com
  */
+@Slf4j
 public class ExecuteThreadUtil {
     private static ExecutorService executorService;
+    /**
+     * 虚拟线程模式下的并发许可,平台线程模式下为null
+     */
+    private static Semaphore permits;
+    private static int maxConcurrency;
+    private static final Map<String,Bulkhead> bulkheads = new ConcurrentHashMap<>();
 
     static {
         final int maxPoolSize = AgentConfiguration.INSTANCE.getAgentMaxThreadCount();
-        //定义并发执行服务
-        executorService = new ThreadPoolExecutor(5, maxPoolSize, 0L, TimeUnit.MILLISECONDS,
-                new SynchronousQueue<>(),
-                r -> {
-                    Thread t = new Thread(r);
-                    t.setName("agentThreadPool");
-                    return t;
-                },new ThreadPoolExecutor.DiscardOldestPolicy()
-        );
+        maxConcurrency = maxPoolSize;
+        if(AgentConfiguration.INSTANCE.isAgentVirtualThreadEnable()){
+            executorService = newVirtualThreadExecutor();
+            if(executorService != null){
+                permits = new Semaphore(maxPoolSize);
+                log.info("采集任务使用虚拟线程执行,最大并发数:{}",maxPoolSize);
+            }else{
+                log.warn("当前JRE({})不支持虚拟线程,采集任务使用平台线程池执行",System.getProperty("java.version"));
+            }
+        }
+        if(executorService == null){
+            //定义并发执行服务
+            executorService = new ThreadPoolExecutor(5, maxPoolSize, 0L, TimeUnit.MILLISECONDS,
+                    new SynchronousQueue<>(),
+                    r -> {
+                        Thread t = new Thread(r);
+                        t.setName("agentThreadPool");
+                        return t;
+                    },new ThreadPoolExecutor.DiscardOldestPolicy()
+            );
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器,使代码可以在JRE8下编译和运行
+     * @return
+     * 不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            //JDK21以下没有此方法,或为预览特性未开启
+            return null;
+        }
+    }
+
+    /**
+     * 是否使用虚拟线程执行
+     * @return
+     */
+    public static boolean isVirtual(){
+        return permits != null;
     }
 
     /**
@@ -37,7 +87,23 @@ public class ExecuteThreadUtil {
      * @param task
      */
     public static void execute(Runnable task) {
-        executorService.submit(task);
+        if(permits != null){
+            executorService.submit(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }else{
+            executorService.submit(task);
+        }
     }
 
     /**
@@ -48,13 +114,83 @@ public class ExecuteThreadUtil {
      * @return
      */
     public static <T> Future<T> execute(Callable<T> task) {
+        if(permits != null){
+            return executorService.submit(() -> {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
         return executorService.submit(task);
     }
 
+    /**
+     * 获取插件的隔离执行器,不存在时按 agent.bulkhead.threads 及 agent.bulkhead.queue 配置创建
+     * @param pluginName
+     * 插件名称
+     * @return
+     */
+    public static Bulkhead bulkhead(String pluginName){
+        return bulkhead(pluginName,AgentConfiguration.INSTANCE.getBulkheadThreads(),AgentConfiguration.INSTANCE.getBulkheadQueue());
+    }
+
+    /**
+     * 获取指定名称的隔离执行器,不存在时按指定的并发数及等待队列容量创建
+     * @param bulkheadName
+     * 执行器名称
+     * @param threads
+     * 最大并发数
+     * @param queueCapacity
+     * 等待队列容量
+     * @return
+     */
+    public static Bulkhead bulkhead(String bulkheadName, int threads, int queueCapacity){
+        Bulkhead bulkhead = bulkheads.get(bulkheadName);
+        if(bulkhead != null){
+            return bulkhead;
+        }
+        return bulkheads.computeIfAbsent(bulkheadName,name -> {
+            Bulkhead created = new Bulkhead(name,threads,queueCapacity,permits != null ? executorService : null);
+            String tags = "plugin=" + name;
+            AgentMetrics.gauge("bulkhead.active",tags,created::getActive);
+            AgentMetrics.gauge("bulkhead.queued",tags,created::getQueued);
+            AgentMetrics.counter("bulkhead.rejected",tags,created::getRejected);
+            return created;
+        });
+    }
+
+    /**
+     * 执行线程的统计信息
+     * @return
+     */
+    public static JSONObject status(){
+        JSONObject status = new JSONObject(true);
+        status.put("mode",permits != null ? "virtual" : "platform");
+        status.put("maxConcurrency",maxConcurrency);
+        if(permits != null){
+            status.put("active",maxConcurrency - permits.availablePermits());
+            status.put("waiting",permits.getQueueLength());
+        }else if(executorService instanceof ThreadPoolExecutor){
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) executorService;
+            status.put("active",executor.getActiveCount());
+            status.put("poolSize",executor.getPoolSize());
+        }
+        JSONObject bulkheadStatus = new JSONObject(true);
+        for (Bulkhead bulkhead : new TreeMap<>(bulkheads).values()) {
+            bulkheadStatus.put(bulkhead.getName(),bulkhead.status());
+        }
+        status.put("bulkheads",bulkheadStatus);
+        return status;
+    }
+
     /**
      * 关闭线程池
      */
     public static void shutdown() {
+        bulkheads.values().forEach(Bulkhead::shutdown);
         executorService.shutdown();
     }
 }
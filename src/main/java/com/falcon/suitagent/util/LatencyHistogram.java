@@ -0,0 +1,96 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.util;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:13 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图(毫秒),线程安全
+ * @author agent@local
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     * @param millis
+     */
+    public void record(long millis){
+        int i = 0;
+        while (i < BOUNDS.length && millis > BOUNDS[i]){
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        sum.addAndGet(millis);
+        long current;
+        while (millis > (current = max.get())){
+            if(max.compareAndSet(current,millis)){
+                break;
+            }
+        }
+    }
+
+    /**
+     * 估算百分位耗时(所在分桶的上限)
+     * @param percent
+     * 0 - 100
+     * @return
+     */
+    public long percentile(double percent){
+        long total = count.get();
+        if(total == 0){
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if(seen >= target){
+                return i < BOUNDS.length ? BOUNDS[i] : max.get();
+            }
+        }
+        return max.get();
+    }
+
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * 直方图的统计信息
+     * @return
+     */
+    public JSONObject toJSON(){
+        JSONObject json = new JSONObject(true);
+        long total = count.get();
+        json.put("count",total);
+        json.put("avg",total == 0 ? 0 : sum.get() / total);
+        json.put("max",max.get());
+        json.put("p50",percentile(50));
+        json.put("p90",percentile(90));
+        json.put("p99",percentile(99));
+        JSONObject bucketJson = new JSONObject(true);
+        for (int i = 0; i < buckets.length(); i++) {
+            String name = i < BOUNDS.length ? "<=" + BOUNDS[i] + "ms" : ">" + BOUNDS[BOUNDS.length - 1] + "ms";
+            bucketJson.put(name,buckets.get(i));
+        }
+        json.put("buckets",bucketJson);
+        return json;
+    }
+}
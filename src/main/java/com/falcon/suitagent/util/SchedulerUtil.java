@@ -5,15 +5,12 @@
 package com.falcon.suitagent.util;
 
 import com.falcon.suitagent.common.AgentJobHelper;
+import com.falcon.suitagent.common.ScheduledJob;
 import com.falcon.suitagent.common.SchedulerFactory;
 import com.falcon.suitagent.plugins.Plugin;
 import com.falcon.suitagent.vo.sceduler.ScheduleJobResult;
 import com.falcon.suitagent.vo.sceduler.ScheduleJobStatus;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.JobDetail;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.Trigger;
 
 import java.util.List;
 
@@ -32,36 +29,23 @@ public class SchedulerUtil {
     /**
      * 执行计划任务
      * @param job
-     * @param trigger
      * @return
-     * @throws SchedulerException
      */
-    public static ScheduleJobResult executeScheduleJob(JobDetail job, Trigger trigger) throws SchedulerException {
+    public static ScheduleJobResult executeScheduleJob(ScheduledJob job) {
         ScheduleJobResult scheduleJobResult = new ScheduleJobResult();
         //判断是否满足计划任务的创建条件
-        if(job.getKey() == null || trigger.getKey() == null || job.getJobDataMap() == null){
+        if(job.getName() == null || job.getJobDataMap() == null || job.getIntervalMillis() <= 0){
             scheduleJobResult.setScheduleJobStatus(ScheduleJobStatus.FAILED);
             //不满足计划任务的创建条件，返回scheduleJobResult值类
             return scheduleJobResult;
         }
-        scheduleJobResult.setJobDetail(job);
-        scheduleJobResult.setTrigger(trigger);
-        //开始分配计划任务
-        Scheduler scheduler  = SchedulerFactory.getScheduler();
-        //开始判断是否存在相同的计划任务
-        if(scheduler.checkExists(job.getKey())){
-            log.info("存在相同的计划任务:{}",job.getKey());
-            scheduler.deleteJob(job.getKey());
-            scheduleJobResult.setJobKey(job.getKey());
-            scheduleJobResult.setTriggerKey(trigger.getKey());
+        scheduleJobResult.setJobName(job.getName());
+        scheduleJobResult.setScheduledJob(job);
+        //开始分配计划任务,存在相同的计划任务时替换
+        if(SchedulerFactory.getScheduler().schedule(job)){
+            log.info("存在相同的计划任务:{}",job.getName());
             scheduleJobResult.setScheduleJobStatus(ScheduleJobStatus.ISEXIST);
-            scheduler.scheduleJob(job,trigger);
-            scheduler.start();
         }else{
-            scheduler.scheduleJob(job,trigger);
-            scheduler.start();
-            scheduleJobResult.setJobKey(job.getKey());
-            scheduleJobResult.setTriggerKey(trigger.getKey());
             scheduleJobResult.setScheduleJobStatus(ScheduleJobStatus.SUCCESS);
         }
         //计划任务分配成功
@@ -71,7 +55,7 @@ public class SchedulerUtil {
     public static ScheduleJobResult getResultByPlugin(Plugin plugin){
         List<ScheduleJobResult> scheduleResults = AgentJobHelper.scheduleResults;
         for (ScheduleJobResult scheduleResult : scheduleResults) {
-            if (scheduleResult.getTriggerKey().getName().equals(plugin.pluginName() + "-agent-scheduler-trigger")){
+            if (plugin.pluginName().equals(scheduleResult.getJobName())){
                 return scheduleResult;
             }
         }
@@ -9,6 +9,7 @@ package com.falcon.suitagent.vo.detect;
  */
 
 import com.falcon.suitagent.falcon.CounterType;
+import com.falcon.suitagent.falcon.FalconReportObject;
 import lombok.Data;
 import lombok.ToString;
 
@@ -64,6 +65,17 @@ public class DetectResult {
          */
         public int step;
 
+        /**
+         * 以数值构造时的值类型及数值,此时 value 为null
+         */
+        private byte valueType;
+        private long longValue;
+        private double doubleValue;
+
+        private static final byte VALUE_STRING = 0;
+        private static final byte VALUE_LONG = 1;
+        private static final byte VALUE_DOUBLE = 2;
+
         /**
          * @param metricName
          * @param value
@@ -91,5 +103,64 @@ public class DetectResult {
             this.tags = tags;
             this.step = step;
         }
+
+        /**
+         * 以整数构造,上报时不经过字符串
+         * @param metricName
+         * @param value
+         * @param counterType
+         * @param tags
+         */
+        public Metric(String metricName,long value, CounterType counterType, String tags) {
+            this(metricName,(String) null,counterType,tags);
+            this.valueType = VALUE_LONG;
+            this.longValue = value;
+        }
+
+        /**
+         * 以浮点数构造,上报时不经过字符串
+         * @param metricName
+         * @param value
+         * @param counterType
+         * @param tags
+         */
+        public Metric(String metricName,double value, CounterType counterType, String tags) {
+            this(metricName,(String) null,counterType,tags);
+            this.valueType = VALUE_DOUBLE;
+            this.doubleValue = value;
+        }
+
+        /**
+         * 是否以数值构造
+         * @return
+         */
+        public boolean isNumeric(){
+            return valueType != VALUE_STRING;
+        }
+
+        /**
+         * 以数值构造时的值
+         * @return
+         */
+        public double doubleValue(){
+            return valueType == VALUE_LONG ? longValue : doubleValue;
+        }
+
+        /**
+         * 将监控值设置到报告中,以数值构造时直接设置数值
+         * @param reportObject
+         */
+        public void applyValue(FalconReportObject reportObject){
+            switch (valueType){
+                case VALUE_LONG:
+                    reportObject.setValue(longValue);
+                    break;
+                case VALUE_DOUBLE:
+                    reportObject.setValue(doubleValue);
+                    break;
+                default:
+                    reportObject.setValue(value);
+            }
+        }
     }
 }
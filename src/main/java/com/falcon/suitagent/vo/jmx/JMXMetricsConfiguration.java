@@ -24,6 +24,5 @@ public class JMXMetricsConfiguration {
     private String alias;
     private String counterType;
     private String tag;
-    private boolean hasCollect = false;
 
 }
@@ -3,11 +3,8 @@ package com.falcon.suitagent.vo.sceduler;/**
  * Created by QianLong on 2014/7/11 0011.
  */
 
+import com.falcon.suitagent.common.ScheduledJob;
 import lombok.Data;
-import org.quartz.JobDetail;
-import org.quartz.JobKey;
-import org.quartz.Trigger;
-import org.quartz.TriggerKey;
 
 import java.io.Serializable;
 
@@ -19,10 +16,8 @@ import java.io.Serializable;
 @Data
 public class ScheduleJobResult implements Serializable {
 
-    private TriggerKey triggerKey;
-    private JobKey jobKey;
-    private JobDetail jobDetail;
-    private Trigger trigger;
+    private String jobName;
+    private transient ScheduledJob scheduledJob;
     private ScheduleJobStatus scheduleJobStatus;
 
 }
@@ -13,8 +13,12 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author guqiu@yiji.com
@@ -35,6 +39,10 @@ public class Request {
      * 访问URL的路径
      */
     private List<String> urlPath;
+    /**
+     * 访问URL的查询参数
+     */
+    private Map<String,String> parameters;
 
     public Request(InputStream input) {
         this.input = input;
@@ -58,6 +66,7 @@ public class Request {
         log.debug("Request Header : \r\n {}",header);
         parseUri();
         parseUrlPath();
+        parseParameters();
     }
 
     private void parseUri() {
@@ -73,7 +82,9 @@ public class Request {
     private void parseUrlPath() {
         urlPath = new ArrayList<>();
         if(!StringUtils.isEmpty(uri)){
-            for (String s : uri.split("/")) {
+            int index = uri.indexOf('?');
+            String path = index == -1 ? uri : uri.substring(0,index);
+            for (String s : path.split("/")) {
                 s =s.trim();
                 if(!StringUtils.isEmpty(s)){
                     urlPath.add(s);
@@ -82,6 +93,26 @@ public class Request {
         }
     }
 
+    private void parseParameters() {
+        parameters = new HashMap<>();
+        if(StringUtils.isEmpty(uri) || uri.indexOf('?') == -1){
+            return;
+        }
+        for (String pair : uri.substring(uri.indexOf('?') + 1).split("&")) {
+            if(StringUtils.isEmpty(pair)){
+                continue;
+            }
+            int index = pair.indexOf('=');
+            String name = index == -1 ? pair : pair.substring(0,index);
+            String value = index == -1 ? "" : pair.substring(index + 1);
+            try {
+                parameters.put(URLDecoder.decode(name,"UTF-8"),URLDecoder.decode(value,"UTF-8"));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                log.warn("无效的请求参数:{}",pair);
+            }
+        }
+    }
+
     public String getUri() {
         return uri;
     }
@@ -89,4 +120,14 @@ public class Request {
     public List<String> getUrlPath() {
         return urlPath;
     }
+
+    /**
+     * 获取查询参数
+     * @param name
+     * @return
+     * 参数不存在时返回null
+     */
+    public String getParameter(String name) {
+        return parameters.get(name);
+    }
 }
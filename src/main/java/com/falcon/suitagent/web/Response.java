@@ -8,12 +8,19 @@ package com.falcon.suitagent.web;
  * guqiu@yiji.com 2016-07-26 13:54 创建
  */
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.falcon.suitagent.common.SchedulerFactory;
 import com.falcon.suitagent.config.AgentConfiguration;
+import com.falcon.suitagent.falcon.ReportMetrics;
 import com.falcon.suitagent.plugins.metrics.MetricsCommon;
+import com.falcon.suitagent.util.ExecuteThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -52,6 +59,16 @@ public class Response {
         output.write(errorMessage.getBytes());
     }
 
+    public void sendJson(String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 200 \r\n" +
+                "Content-Type: application/json; charset=UTF-8\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "\r\n";
+        output.write(header.getBytes());
+        output.write(body);
+    }
+
     public void doRequest() throws IOException {
         List<String> urlPath = request.getUrlPath();
         if(urlPath.size() >= 1 && "mock".equals(urlPath.get(0))){
@@ -81,6 +98,44 @@ public class Response {
             send(msg);
         }else if(urlPath.size() >= 1 && "version".equals(urlPath.get(0))){
             send("Version " + AgentConfiguration.VERSION);
+        }else if(urlPath.size() >= 1 && "status".equals(urlPath.get(0))){
+            JSONObject status = new JSONObject();
+            status.put("push",ReportMetrics.status());
+            status.put("scheduler",SchedulerFactory.getScheduler().status());
+            status.put("executor",ExecuteThreadUtil.status());
+            send(status.toJSONString());
+        }else if(urlPath.size() >= 1 && "recent".equals(urlPath.get(0))){
+            //ring输出目标中最近的报告 : /recent/{limit}
+            int limit = 100;
+            if(urlPath.size() >= 2){
+                try {
+                    limit = Integer.parseInt(urlPath.get(1));
+                } catch (NumberFormatException e) {
+                    send("<h3>error! url path must be match : /recent/{limit}</h3>");
+                    return;
+                }
+            }
+            send(JSON.toJSONString(ReportMetrics.recent(limit)));
+        }else if(urlPath.size() >= 1 && "query".equals(urlPath.get(0))){
+            //history输出目标的时间范围查询 : /query?metric={metric}&endpoint={endpoint}&tags={k1=v1,k2=v2}&start={秒}&end={秒}&limit={序列数}
+            long now = System.currentTimeMillis() / 1000;
+            long start;
+            long end;
+            int limit;
+            try {
+                end = request.getParameter("end") == null ? now : Long.parseLong(request.getParameter("end"));
+                start = request.getParameter("start") == null ? end - 3600 : Long.parseLong(request.getParameter("start"));
+                limit = request.getParameter("limit") == null ? 100 : Integer.parseInt(request.getParameter("limit"));
+            } catch (NumberFormatException e) {
+                send("<h3>error! start 、end 、limit must be number</h3>");
+                return;
+            }
+            JSONArray result = ReportMetrics.query(request.getParameter("metric"),request.getParameter("endpoint"),request.getParameter("tags"),start,end,limit);
+            if(result == null){
+                send("<h3>error! history sink is not enabled : agent.sinks</h3>");
+                return;
+            }
+            sendJson(result.toJSONString());
         }else{
             send_404();
         }
@@ -0,0 +1,105 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 10:24 创建
+ */
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FalconJsonEncoder} 与原 org.json 编码方式(RequestJson -> JSONArray -> String -> getBytes)的性能对比
+ * 运行: 以test classpath执行本类的main方法
+ * @author agent@local
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FalconJsonEncoderBenchmark {
+
+    /**
+     * 每批的报告数
+     */
+    @Param({"100", "2000"})
+    private int batchSize;
+
+    private List<FalconReportObject> reports;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        reports = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            FalconReportObject report = new FalconReportObject();
+            report.setEndpoint("app-server-01.yiji.com");
+            report.setMetric("jmx.java.lang.type.memorypool.name.metaspace.usage." + (i % 50));
+            report.setTimestamp(1476755400L + i);
+            report.setStep(60);
+            report.setCounterType(i % 3 == 0 ? CounterType.COUNTER : CounterType.GAUGE);
+            report.setTags("service.type=jmx,service=tomcat,agentSignName=catalina-" + (i % 5));
+            if(i % 2 == 0){
+                report.setValue(1024L * i);
+            }else{
+                report.setValue(i / 7.0);
+            }
+            reports.add(report);
+        }
+    }
+
+    /**
+     * 原 org.json 的编码方式
+     * @return
+     */
+    @Benchmark
+    public byte[] orgJson(){
+        JSONArray jsonArray = new JSONArray();
+        for (FalconReportObject report : reports) {
+            JSONObject jsonObject = RequestJson.translatorByRequestObject(report);
+            if(jsonObject != null){
+                jsonArray.put(jsonObject);
+            }
+        }
+        return jsonArray.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 流式编码,结果留在线程复用的缓冲区中
+     * @return
+     */
+    @Benchmark
+    public int encoder(){
+        return FalconJsonEncoder.get().encode(reports).size();
+    }
+
+    /**
+     * 流式编码并拷贝结果,即 ReportBatch 的用法
+     * @return
+     */
+    @Benchmark
+    public byte[] encoderCopy(){
+        return FalconJsonEncoder.get().encode(reports).toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FalconJsonEncoderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
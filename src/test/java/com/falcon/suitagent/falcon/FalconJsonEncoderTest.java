@@ -0,0 +1,139 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 10:10 创建
+ */
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link FalconJsonEncoder} 的输出须与原 org.json 的输出({@link RequestJson#translatorByRequestObject(FalconReportObject)})等价
+ * @author agent@local
+ */
+public class FalconJsonEncoderTest {
+
+    private static FalconReportObject report(String endpoint, String metric, String tags){
+        FalconReportObject report = new FalconReportObject();
+        if(endpoint != null){
+            report.setEndpoint(endpoint);
+        }
+        if(metric != null){
+            report.setMetric(metric);
+        }
+        if(tags != null){
+            report.setTags(tags);
+        }
+        report.setTimestamp(1476755400L);
+        report.setStep(60);
+        report.setCounterType(CounterType.GAUGE);
+        report.setValue(1);
+        return report;
+    }
+
+    /**
+     * 原 org.json 的编码方式
+     */
+    private static String expected(List<FalconReportObject> reports){
+        JSONArray jsonArray = new JSONArray();
+        for (FalconReportObject report : reports) {
+            JSONObject jsonObject = RequestJson.translatorByRequestObject(report);
+            if(jsonObject != null){
+                jsonArray.put(jsonObject);
+            }
+        }
+        return jsonArray.toString();
+    }
+
+    private static void assertEquivalent(List<FalconReportObject> reports){
+        FalconJsonEncoder encoder = FalconJsonEncoder.get().encode(reports);
+        String actual = encoder.toString();
+        assertEquals(actual,new String(encoder.toByteArray(),StandardCharsets.UTF_8));
+
+        //org.json 的字段顺序不固定,比较解析后的内容
+        JSONArray expectedArray = new JSONArray(expected(reports));
+        JSONArray actualArray = new JSONArray(actual);
+        assertEquals(expectedArray.length(),actualArray.length());
+        for (int i = 0; i < expectedArray.length(); i++) {
+            JSONObject expectedObject = expectedArray.getJSONObject(i);
+            JSONObject actualObject = actualArray.getJSONObject(i);
+            assertEquals(expectedObject.keySet(),actualObject.keySet());
+            for (Object key : expectedObject.keySet()) {
+                assertEquals(String.valueOf(key),String.valueOf(expectedObject.get((String) key)),String.valueOf(actualObject.get((String) key)));
+            }
+        }
+    }
+
+    @Test
+    public void testValues(){
+        FalconReportObject longValue = report("host-1","jmx.heap.used","service=demo");
+        longValue.setValue(-9876543210L);
+        FalconReportObject doubleValue = report("host-1","jmx.cpu.ratio","service=demo");
+        doubleValue.setValue(0.125);
+        doubleValue.setCounterType(CounterType.COUNTER);
+        FalconReportObject textValue = report("host-1","availability","service=demo");
+        textValue.setValue("1");
+        FalconReportObject noValue = report("host-1","empty","service=demo");
+        noValue.setValue((String) null);
+        noValue.setCounterType(null);
+        assertEquivalent(Arrays.asList(longValue,doubleValue,textValue,noValue));
+    }
+
+    @Test
+    public void testEscape(){
+        FalconReportObject report = report("host\"1\\","metric\n\r\t\b\f\u0001\u001f</script>","dir=C:\\data,line=a\tb");
+        report.setValue("\u0085\u00a0\u2028\u2029\u007f");
+        assertEquivalent(Collections.singletonList(report));
+    }
+
+    @Test
+    public void testNonBmp(){
+        FalconReportObject report = report("主机-\uD83D\uDE00","指标.\uD834\uDD1E","服务=演示,emoji=\uD83D\uDE80");
+        report.setValue("\u00e9\u4e2d\uD83D\uDE00");
+        assertEquivalent(Collections.singletonList(report));
+    }
+
+    @Test
+    public void testNull(){
+        List<FalconReportObject> reports = new ArrayList<>();
+        reports.add(report(null,"metric","service=demo"));
+        reports.add(report("host-1","metric",null));
+        reports.add(report(null,null,null));
+        assertEquivalent(reports);
+
+        String json = FalconJsonEncoder.get().encode(reports).toString();
+        JSONArray array = new JSONArray(json);
+        assertEquals(false,array.getJSONObject(0).has("endpoint"));
+        assertEquals(false,array.getJSONObject(1).has("tags"));
+        assertEquals(false,array.getJSONObject(2).has("metric"));
+    }
+
+    @Test
+    public void testCachedStrings(){
+        List<FalconReportObject> reports = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            reports.add(report("host-\u00e9","metric." + i,"service=\"demo\\"));
+        }
+        assertEquivalent(reports);
+        //第二次编码使用缓存的转义结果
+        assertEquivalent(reports);
+    }
+
+    @Test
+    public void testEmpty(){
+        assertEquals("[]",FalconJsonEncoder.get().encode(Collections.<FalconReportObject>emptyList()).toString());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 09:16 创建
+ */
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地的模拟transfer服务
+ * 实现transfer的 Transfer.Update JSON-RPC 方法,记录收到的数据,用于在没有Open-Falcon环境时测试 {@link TransferClient}。
+ * @author agent@local
+ */
+@Slf4j
+public class MockTransferServer implements Closeable {
+
+    /**
+     * 保留的最近收到的数据条数
+     */
+    private static final int MAX_RECENT = 10000;
+
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final ConcurrentLinkedDeque<JSONObject> recent = new ConcurrentLinkedDeque<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong metrics = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * 启动模拟transfer服务
+     * @param port
+     * 监听端口,0为随机端口
+     * @throws IOException
+     */
+    public MockTransferServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread acceptThread = new Thread(this::acceptLoop);
+        acceptThread.setName("mockTransfer-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void acceptLoop(){
+        while (running){
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (sockets){
+                    sockets.add(socket);
+                }
+                Thread thread = new Thread(() -> handle(socket));
+                thread.setName("mockTransfer-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if(running){
+                    log.error("模拟transfer接受连接失败",e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket){
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),StandardCharsets.UTF_8))){
+            String line;
+            while ((line = in.readLine()) != null){
+                JSONObject request = JSON.parseObject(line);
+                JSONObject response = new JSONObject(true);
+                response.put("id",request.get("id"));
+                if("Transfer.Update".equals(request.getString("method"))){
+                    JSONArray items = request.getJSONArray("params").getJSONArray(0);
+                    requests.incrementAndGet();
+                    metrics.addAndGet(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        recent.addLast(items.getJSONObject(i));
+                        if(recent.size() > MAX_RECENT){
+                            recent.pollFirst();
+                        }
+                    }
+                    JSONObject result = new JSONObject(true);
+                    result.put("Message","ok");
+                    result.put("Total",items.size());
+                    result.put("Invalid",0);
+                    result.put("Latency",0);
+                    response.put("result",result);
+                    response.put("error",null);
+                }else{
+                    response.put("result",null);
+                    response.put("error","rpc: can't find method " + request.getString("method"));
+                }
+                out.write(JSON.toJSONString(response,SerializerFeature.WriteMapNullValue));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            if(running){
+                log.debug("模拟transfer连接断开: {}",e.getMessage());
+            }
+        } finally {
+            synchronized (sockets){
+                sockets.remove(socket);
+            }
+        }
+    }
+
+    /**
+     * 监听端口
+     * @return
+     */
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 收到的 Transfer.Update 请求数
+     * @return
+     */
+    public long getRequestCount(){
+        return requests.get();
+    }
+
+    /**
+     * 收到的数据条数
+     * @return
+     */
+    public long getMetricCount(){
+        return metrics.get();
+    }
+
+    /**
+     * 最近收到的数据
+     * @return
+     */
+    public List<JSONObject> getRecent(){
+        return new ArrayList<>(recent);
+    }
+
+    /**
+     * 关闭服务及所有连接
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        synchronized (sockets){
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+            sockets.clear();
+        }
+    }
+}
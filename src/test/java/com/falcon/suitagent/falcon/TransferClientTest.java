@@ -0,0 +1,157 @@
+/*
+ * www.yiji.com Inc.
+ * Copyright (c) 2016 All Rights Reserved
+ */
+package com.falcon.suitagent.falcon;
+/*
+ * 修订记录:
+ * agent@local 2026-10-18 10:13 创建
+ */
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 使用 {@link MockTransferServer} 测试 {@link TransferClient} 的轮询、失败标记及故障转移
+ * @author agent@local
+ */
+public class TransferClientTest {
+
+    private final List<MockTransferServer> servers = new ArrayList<>();
+    private TransferClient client;
+    private byte[] data;
+
+    @Before
+    public void setUp(){
+        FalconReportObject report = new FalconReportObject();
+        report.setEndpoint("host-1");
+        report.setMetric("test.metric");
+        report.setTimestamp(1476755400L);
+        report.setStep(60);
+        report.setValue(1);
+        report.setCounterType(CounterType.GAUGE);
+        report.setTags("service=demo");
+        data = FalconJsonEncoder.get().encode(Collections.singletonList(report)).toByteArray();
+    }
+
+    @After
+    public void tearDown(){
+        if(client != null){
+            client.close();
+        }
+        servers.forEach(MockTransferServer::close);
+    }
+
+    private MockTransferServer startServer() throws IOException {
+        MockTransferServer server = new MockTransferServer(0);
+        servers.add(server);
+        return server;
+    }
+
+    /**
+     * 未监听的本地端口
+     */
+    private static int closedPort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)){
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static String address(int port){
+        return "127.0.0.1:" + port;
+    }
+
+    private boolean update(){
+        return client.update(data,data.length,1);
+    }
+
+    private JSONObject addressStatus(int index){
+        return client.status().getJSONArray("addresses").getJSONObject(index);
+    }
+
+    @Test
+    public void testRoundRobin() throws IOException {
+        MockTransferServer first = startServer();
+        MockTransferServer second = startServer();
+        client = new TransferClient(Arrays.asList(address(first.getPort()),address(second.getPort())),2,1000,2000);
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(update());
+        }
+        assertEquals(3,first.getRequestCount());
+        assertEquals(3,second.getRequestCount());
+        assertEquals(6,first.getMetricCount() + second.getMetricCount());
+        assertEquals("test.metric",first.getRecent().get(0).getString("metric"));
+        assertEquals(0,client.status().getLongValue("failovers"));
+    }
+
+    @Test
+    public void testFailoverAndMarkDown() throws IOException {
+        int downPort = closedPort();
+        MockTransferServer server = startServer();
+        client = new TransferClient(Arrays.asList(address(downPort),address(server.getPort())),2,1000,2000);
+
+        //第一次从不可用的地址开始,失败后切换到下一个地址
+        assertTrue(update());
+        assertEquals(1,server.getRequestCount());
+        assertEquals(1,client.status().getLongValue("failovers"));
+        assertEquals(1,client.status().getLongValue("errors"));
+        assertFalse(addressStatus(0).getBooleanValue("available"));
+        assertEquals(1,addressStatus(0).getLongValue("failure"));
+
+        //被标记为不可用的地址不再参与轮询
+        for (int i = 0; i < 4; i++) {
+            assertTrue(update());
+        }
+        assertEquals(5,server.getRequestCount());
+        assertEquals(1,client.status().getLongValue("failovers"));
+        assertEquals(1,addressStatus(0).getLongValue("failure"));
+        assertTrue(addressStatus(1).getBooleanValue("available"));
+        assertEquals(5,addressStatus(1).getLongValue("success"));
+    }
+
+    @Test
+    public void testServerClosed() throws IOException {
+        MockTransferServer first = startServer();
+        MockTransferServer second = startServer();
+        client = new TransferClient(Arrays.asList(address(first.getPort()),address(second.getPort())),2,1000,2000);
+        assertTrue(update());
+        assertTrue(update());
+
+        //已建立的空闲连接被关闭后,调用失败并切换到另一个地址
+        first.close();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(update());
+        }
+        //已关闭的服务可能读取了请求但未能响应,以客户端的统计为准
+        assertEquals(1,addressStatus(0).getLongValue("success"));
+        assertEquals(1,addressStatus(0).getLongValue("failure"));
+        assertEquals(3,second.getRequestCount());
+        assertFalse(addressStatus(0).getBooleanValue("available"));
+        assertTrue(addressStatus(1).getBooleanValue("available"));
+    }
+
+    @Test
+    public void testAllDown() throws IOException {
+        client = new TransferClient(Arrays.asList(address(closedPort()),address(closedPort())),2,1000,2000);
+        assertFalse(update());
+        assertEquals(2,client.status().getLongValue("errors"));
+        assertFalse(addressStatus(0).getBooleanValue("available"));
+        assertFalse(addressStatus(1).getBooleanValue("available"));
+
+        //所有地址都不可用时仍会尝试
+        assertFalse(update());
+        assertEquals(4,client.status().getLongValue("errors"));
+    }
+}